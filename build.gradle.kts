@@ -1,9 +1,11 @@
+import com.google.protobuf.gradle.id
 import org.gradle.kotlin.dsl.implementation
 
 plugins {
 	java
 	id("org.springframework.boot") version "4.0.1"
 	id("io.spring.dependency-management") version "1.1.7"
+	id("com.google.protobuf") version "0.9.5"
 }
 
 group = "com.imran"
@@ -27,6 +29,8 @@ repositories {
 }
 
 extra["springCloudVersion"] = "2025.1.0"
+val grpcVersion = "1.75.0"
+val protobufVersion = "4.31.1"
 
 dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-actuator")
@@ -39,7 +43,7 @@ dependencies {
 	//implementation("org.springframework.cloud:spring-cloud-starter-netflix-eureka-client")
 	compileOnly("org.projectlombok:lombok")
 	runtimeOnly("io.micrometer:micrometer-registry-prometheus")
-	runtimeOnly("org.postgresql:postgresql")
+	implementation("org.postgresql:postgresql")
 	annotationProcessor("org.projectlombok:lombok")
 	testImplementation("org.springframework.boot:spring-boot-starter-actuator-test")
 	//testImplementation("org.springframework.boot:spring-boot-starter-amqp-test")
@@ -48,6 +52,9 @@ dependencies {
 	testImplementation("org.springframework.boot:spring-boot-starter-security-test")
 	testImplementation("org.springframework.boot:spring-boot-starter-validation-test")
 	testImplementation("org.springframework.boot:spring-boot-starter-webmvc-test")
+	testImplementation("org.springframework.boot:spring-boot-testcontainers")
+	testImplementation("org.testcontainers:testcontainers-junit-jupiter")
+	testImplementation("org.testcontainers:testcontainers-postgresql")
 	testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 
 	implementation("io.jsonwebtoken:jjwt-api:0.12.3")
@@ -55,6 +62,20 @@ dependencies {
 	runtimeOnly("io.jsonwebtoken:jjwt-jackson:0.12.3")
 	implementation("org.springdoc:springdoc-openapi-starter-webmvc-ui:3.0.0")
 	implementation("org.springframework.boot:spring-boot-starter-data-redis")
+	implementation("org.springframework.boot:spring-boot-starter-flyway")
+	implementation("org.flywaydb:flyway-database-postgresql")
+	implementation("org.hibernate.orm:hibernate-jcache")
+	implementation("org.hibernate.orm:hibernate-micrometer")
+	implementation("com.github.ben-manes.caffeine:jcache")
+	implementation("com.github.ben-manes.caffeine:caffeine")
+	implementation("io.github.resilience4j:resilience4j-circuitbreaker:2.3.0")
+	implementation("io.github.resilience4j:resilience4j-micrometer:2.3.0")
+	implementation("io.grpc:grpc-netty-shaded:$grpcVersion")
+	implementation("io.grpc:grpc-protobuf:$grpcVersion")
+	implementation("io.grpc:grpc-stub:$grpcVersion")
+	implementation("com.google.protobuf:protobuf-java:$protobufVersion")
+	compileOnly("org.apache.tomcat:annotations-api:6.0.53")
+	testImplementation("io.grpc:grpc-inprocess:$grpcVersion")
 
 }
 
@@ -64,6 +85,28 @@ dependencyManagement {
 	}
 }
 
+protobuf {
+	protoc {
+		artifact = "com.google.protobuf:protoc:$protobufVersion"
+	}
+	plugins {
+		id("grpc") {
+			artifact = "io.grpc:protoc-gen-grpc-java:$grpcVersion"
+		}
+	}
+	generateProtoTasks {
+		all().forEach {
+			it.plugins {
+				id("grpc")
+			}
+		}
+	}
+}
+
 tasks.withType<Test> {
 	useJUnitPlatform()
+	// -Dbenchmark.token=... turns on TokenValidationBenchmarkTest against a running instance
+	systemProperties(System.getProperties().stringPropertyNames()
+		.filter { it.startsWith("benchmark.") }
+		.associateWith { System.getProperty(it) })
 }
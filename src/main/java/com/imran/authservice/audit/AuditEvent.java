@@ -0,0 +1,19 @@
+package com.imran.authservice.audit;
+
+import com.imran.authservice.enums.AuditEventType;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Value
+public class AuditEvent {
+
+    Instant occurredAt;
+    AuditEventType type;
+    UUID userId;
+    String principal;
+    String ipAddress;
+    String userAgent;
+
+}
@@ -0,0 +1,74 @@
+package com.imran.authservice.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer, single-consumer ring buffer.
+ * <p>
+ * Producers claim a sequence with one CAS and publish into the claimed slot; a
+ * full buffer is reported instead of waiting, so request threads never block.
+ * The single consumer clears each slot before advancing its position, which is
+ * what allows producers to reuse it.
+ */
+public class AuditRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong producerSequence = new AtomicLong();
+    private final AtomicLong consumerSequence = new AtomicLong();
+
+    public AuditRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1) << 1);
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Returns false without blocking when the buffer is full.
+     */
+    public boolean offer(E element) {
+        while (true) {
+            long sequence = producerSequence.get();
+            if (sequence - consumerSequence.get() >= slots.length()) {
+                return false;
+            }
+            if (producerSequence.compareAndSet(sequence, sequence + 1)) {
+                slots.lazySet((int) sequence & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves up to max published elements into the target, consumer thread only.
+     */
+    public int drainTo(List<? super E> target, int max) {
+        long sequence = consumerSequence.get();
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) sequence & mask;
+            E element = slots.get(index);
+            if (element == null) {
+                // Empty, or the producer that claimed this slot has not published yet
+                break;
+            }
+            slots.lazySet(index, null);
+            target.add(element);
+            sequence++;
+            drained++;
+        }
+        consumerSequence.lazySet(sequence);
+        return drained;
+    }
+
+    public int size() {
+        return (int) Math.max(0, producerSequence.get() - consumerSequence.get());
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+}
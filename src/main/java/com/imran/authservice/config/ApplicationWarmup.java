@@ -0,0 +1,231 @@
+package com.imran.authservice.config;
+
+import com.imran.authservice.enums.Role;
+import com.imran.authservice.model.User;
+import com.imran.authservice.repository.UserRepository;
+import com.imran.authservice.security.JwtTokenProvider;
+import com.imran.authservice.security.TotpService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Drives the hot paths of a fresh instance before it is marked ready.
+ * <p>
+ * Boot only flips readiness to ACCEPTING_TRAFFIC after every ApplicationReadyEvent
+ * listener has returned, so running synchronously here keeps the pod out of the
+ * load balancer until JWT signing, BCrypt, the MVC/Jackson request path and the
+ * database and Redis connections are warm, and the most recently active users are
+ * in the second-level cache with their TOTP keys decoded. Every phase stops at the
+ * shared time budget, a slow warm-up never blocks readiness for longer than that.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ApplicationWarmup {
+
+    public static final String WARMUP_HEADER = "X-Warmup";
+
+    private static final String RECENT_USERS_SQL =
+            "SELECT id FROM users WHERE last_login IS NOT NULL ORDER BY last_login DESC LIMIT ?";
+    private static final int CACHE_BATCH_SIZE = 200;
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final PasswordEncoder passwordEncoder;
+    private final TotpService totpService;
+    private final UserRepository userRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final DataSource dataSource;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisConnectionFactory redisConnectionFactory;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+
+    @Value("${warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${warmup.time-budget:20s}")
+    private Duration timeBudget;
+
+    @Value("${warmup.token-iterations:20000}")
+    private int tokenIterations;
+
+    @Value("${warmup.password-iterations:20}")
+    private int passwordIterations;
+
+    @Value("${warmup.request-iterations:500}")
+    private int requestIterations;
+
+    @Value("${warmup.cached-users:1000}")
+    private int cachedUsers;
+
+    @Value("${spring.datasource.hikari.minimum-idle:5}")
+    private int minimumIdle;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+        BooleanSupplier timeLeft = () -> System.nanoTime() < deadline;
+
+        long start = System.nanoTime();
+        runPhase("connections", this::openConnections);
+        runPhase("caches", () -> primeCaches(deadline));
+        runPhase("tokens", () -> signAndVerifyTokens(timeLeft));
+        runPhase("passwords", () -> hashPasswords(timeLeft));
+        runPhase("requests", () -> sendRequests(timeLeft));
+
+        log.info("Warm-up finished in {} ms{}", (System.nanoTime() - start) / 1_000_000,
+                timeLeft.getAsBoolean() ? "" : " (time budget exhausted)");
+    }
+
+    private void runPhase(String phase, Runnable work) {
+        Timer timer = Timer.builder("application.warmup")
+                .description("Time spent warming up before accepting traffic")
+                .tag("phase", phase)
+                .register(meterRegistry);
+        try {
+            timer.record(work);
+        } catch (Exception e) {
+            // A failed phase only costs warmth, never availability
+            log.warn("Warm-up phase {} failed: {}", phase, e.getMessage());
+        }
+    }
+
+    private void openConnections() {
+        // Hold minimum-idle connections at once so Hikari opens them now instead of on first demand
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < minimumIdle; i++) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                connection.isValid(1);
+            }
+        } catch (Exception e) {
+            log.warn("Could not pre-open database connections: {}", e.getMessage());
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (Exception ignored) {
+                    // Returned to the pool or already broken, nothing to do
+                }
+            }
+        }
+
+        // Lettuce connects lazily, the first PING establishes the shared connection
+        try (var connection = redisConnectionFactory.getConnection()) {
+            connection.ping();
+        }
+        redisTemplate.hasKey("warmup:" + UUID.randomUUID());
+    }
+
+    // Users who logged in last are the likeliest to come back first
+    private void primeCaches(long deadline) {
+        int secondsLeft = (int) TimeUnit.NANOSECONDS.toSeconds(deadline - System.nanoTime());
+        if (cachedUsers <= 0 || secondsLeft <= 0) {
+            return;
+        }
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setQueryTimeout(secondsLeft);
+        List<UUID> ids = jdbcTemplate.queryForList(RECENT_USERS_SQL, UUID.class, cachedUsers);
+
+        // Read-write so the rows come from the primary and go into the second-level cache
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int from = 0; from < ids.size() && System.nanoTime() < deadline; from += CACHE_BATCH_SIZE) {
+                for (User user : userRepository.findAllById(ids.subList(from, Math.min(from + CACHE_BATCH_SIZE, ids.size())))) {
+                    if (user.isMfaEnabled() && user.getMfaSecret() != null) {
+                        totpService.primeKey(user.getMfaSecret());
+                    }
+                }
+            }
+        });
+        log.debug("Primed caches with {} recently active users", ids.size());
+    }
+
+    private void signAndVerifyTokens(BooleanSupplier timeLeft) {
+        User user = User.builder()
+                .id(UUID.randomUUID())
+                .email("warmup@localhost")
+                .username("warmup")
+                .role(Role.USER)
+                .build();
+        var authentication = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+
+        String token = null;
+        for (int i = 0; i < tokenIterations && timeLeft.getAsBoolean(); i++) {
+            token = jwtTokenProvider.generateAccessToken(authentication);
+            jwtTokenProvider.parseAccessToken(token);
+        }
+        // The signing key's jjwt parser serves tokens the fast codec does not handle
+        if (token != null) {
+            jwtTokenProvider.getUserIdFromToken(token);
+        }
+    }
+
+    private void hashPasswords(BooleanSupplier timeLeft) {
+        // Each hash costs tens of milliseconds, a handful is enough to compile the inner rounds
+        String hash = passwordEncoder.encode("warmup-password");
+        for (int i = 0; i < passwordIterations && timeLeft.getAsBoolean(); i++) {
+            passwordEncoder.matches("warmup-password", hash);
+        }
+    }
+
+    private void sendRequests(BooleanSupplier timeLeft) {
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        if (port == null) {
+            return;
+        }
+
+        // An empty login body fails validation before any database access, but still goes
+        // through the security filter chain, MVC dispatch and Jackson in both directions
+        URI uri = URI.create("http://localhost:" + port
+                + environment.getProperty("server.servlet.context-path", "") + "/api/v1/auth/login");
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .header(WARMUP_HEADER, "true")
+                .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                .build();
+
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            for (int i = 0; i < requestIterations && timeLeft.getAsBoolean(); i++) {
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.imran.authservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.imran.authservice.enums.RequestPriority;
+import com.imran.authservice.util.GradientConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Adaptive load shedding in front of the security chain and the controllers.
+ * <p>
+ * When Postgres slows down, requests would otherwise pile up on the connection
+ * pool until every endpoint times out together. The limiter shrinks the number of
+ * concurrent requests as latency rises, and each priority class may only fill its
+ * share of that limit: token validation, refresh and logout keep working longest,
+ * login next, registration, admin and account management are shed first. Shed
+ * requests get an immediate 503 with Retry-After instead of queueing.
+ * <p>
+ * The streaming admin import and export run for minutes, so their latency says
+ * nothing about Postgres and would drag the limit up for everyone. They never
+ * touch the adaptive limiter and get a small fixed number of slots of their own.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String AUTH_PATH = "/api/v1/auth/";
+    private static final Set<String> STREAMING_PATHS = Set.of("/api/v1/admin/users/import", "/api/v1/admin/users/export");
+
+    private final GradientConcurrencyLimiter limiter;
+    private final Semaphore streamingSlots;
+    private final Map<RequestPriority, Counter> rejected = new EnumMap<>(RequestPriority.class);
+    private final Counter streamingRejected;
+    private final boolean enabled;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public ConcurrencyLimitFilter(MeterRegistry meterRegistry,
+                                  @Value("${concurrency-limit.enabled:true}") boolean enabled,
+                                  @Value("${concurrency-limit.initial-limit:20}") int initialLimit,
+                                  @Value("${concurrency-limit.min-limit:5}") int minLimit,
+                                  @Value("${concurrency-limit.max-limit:200}") int maxLimit,
+                                  @Value("${concurrency-limit.rtt-tolerance:1.5}") double rttTolerance,
+                                  @Value("${concurrency-limit.streaming-limit:2}") int streamingLimit) {
+        this.enabled = enabled;
+        this.limiter = new GradientConcurrencyLimiter(initialLimit, minLimit, maxLimit, rttTolerance);
+        this.streamingSlots = new Semaphore(streamingLimit);
+
+        Gauge.builder("http.concurrency.limit", limiter, GradientConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("http.concurrency.in.flight", limiter, GradientConcurrencyLimiter::getInFlight)
+                .description("Requests currently holding a concurrency slot")
+                .register(meterRegistry);
+        for (RequestPriority priority : RequestPriority.values()) {
+            rejected.put(priority, Counter.builder("http.concurrency.rejected")
+                    .description("Requests shed by the concurrency limiter")
+                    .tag("priority", priority.name())
+                    .register(meterRegistry));
+        }
+        streamingRejected = Counter.builder("http.concurrency.rejected")
+                .description("Requests shed by the concurrency limiter")
+                .tag("priority", "STREAMING")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Probes and scrapes must keep answering, or an overloaded pod is restarted on top of it.
+        // The servlet path leaves out the /auth-service context path the request URI carries.
+        return !enabled || request.getServletPath().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (isStreaming(request)) {
+            doFilterStreaming(request, response, filterChain);
+            return;
+        }
+
+        RequestPriority priority = priorityOf(request);
+        if (!limiter.tryAcquire(priority.getLimitShare())) {
+            rejected.get(priority).increment();
+            reject(request, response);
+            return;
+        }
+
+        int inFlightAtStart = limiter.getInFlight();
+        long start = System.nanoTime();
+        boolean dropped = true;
+        try {
+            filterChain.doFilter(request, response);
+            // Server errors are mostly pool and statement timeouts under load
+            dropped = response.getStatus() >= 500;
+        } finally {
+            limiter.release(System.nanoTime() - start, inFlightAtStart, dropped);
+        }
+    }
+
+    private void doFilterStreaming(HttpServletRequest request,
+                                   HttpServletResponse response,
+                                   FilterChain filterChain) throws ServletException, IOException {
+        if (!streamingSlots.tryAcquire()) {
+            streamingRejected.increment();
+            reject(request, response);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            streamingSlots.release();
+        }
+    }
+
+    static boolean isStreaming(HttpServletRequest request) {
+        return STREAMING_PATHS.contains(request.getServletPath());
+    }
+
+    static RequestPriority priorityOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(AUTH_PATH)) {
+            return RequestPriority.BACKGROUND;
+        }
+        return switch (path.substring(AUTH_PATH.length())) {
+            case "me", "validate", "refresh-token", "logout" -> RequestPriority.CRITICAL;
+            case "login", "mfa/verify" -> RequestPriority.LOGIN;
+            default -> RequestPriority.BACKGROUND;
+        };
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", "1");
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        body.put("error", "Service Unavailable");
+        body.put("message", "Server is overloaded, retry later");
+        body.put("path", request.getServletPath());
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+}
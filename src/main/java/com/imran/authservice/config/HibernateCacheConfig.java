@@ -0,0 +1,41 @@
+package com.imran.authservice.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+/**
+ * Exports the size of every second-level cache region. Hit, miss and put
+ * counts per region are exported by Hibernate's own statistics binding.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    @Bean
+    public MeterBinder secondLevelCacheSizeMetrics(EntityManagerFactory entityManagerFactory) {
+        // Same provider and default URI that Hibernate's JCache region factory resolves,
+        // the factory dependency only makes sure the regions exist before we bind
+        CacheManager cacheManager = Caching
+                .getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+
+        return registry -> {
+            for (String region : cacheManager.getCacheNames()) {
+                com.github.benmanes.caffeine.cache.Cache<?, ?> cache = cacheManager.getCache(region)
+                        .unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+
+                Gauge.builder("hibernate.second.level.cache.size", cache, c -> c.estimatedSize())
+                        .description("Estimated number of entries in the second-level cache region")
+                        .tag("region", region)
+                        .register(registry);
+            }
+        };
+    }
+
+}
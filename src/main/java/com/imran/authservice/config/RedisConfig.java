@@ -1,15 +1,36 @@
 package com.imran.authservice.config;
 
+import io.lettuce.core.ReadFrom;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisNode;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.RedisStaticMasterReplicaConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.StringUtils;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Redis connections for a standalone server, a static primary with replicas,
+ * a Sentinel-managed primary or a Cluster, picked from the configured properties
+ * in that order of precedence: cluster nodes, sentinel master, replicas, host.
+ */
 @Configuration
 public class RedisConfig {
 
@@ -22,33 +43,140 @@ public class RedisConfig {
     @Value("${spring.redis.password:}")
     private String redisPassword;
 
+    @Value("${spring.data.redis.timeout:2s}")
+    private Duration commandTimeout;
+
+    // host:port,host:port of read replicas next to spring.data.redis.host, without Sentinel
+    @Value("${spring.data.redis.replicas:}")
+    private String replicaNodes;
+
+    @Value("${spring.data.redis.sentinel.master:}")
+    private String sentinelMaster;
+
+    @Value("${spring.data.redis.sentinel.nodes:}")
+    private String sentinelNodes;
+
+    @Value("${spring.data.redis.cluster.nodes:}")
+    private String clusterNodes;
+
+    @Value("${security.blacklist.read-timeout:50ms}")
+    private Duration blacklistReadTimeout;
+
+    // Any Lettuce ReadFrom name: replicaPreferred, replica, nearest, any, upstream...
+    @Value("${security.blacklist.read-from:replicaPreferred}")
+    private String blacklistReadFrom;
+
+    // Writes, pub/sub and everything that must see its own writes stay on the primary
     @Bean
+    @Primary
     public RedisConnectionFactory redisConnectionFactory() {
-        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration();
-        config.setHostName(redisHost);
-        config.setPort(redisPort);
-        
-        if (!redisPassword.isEmpty()) {
-            config.setPassword(redisPassword);
-        }
-        
-        return new LettuceConnectionFactory(config);
+        return lettuceConnectionFactory(redisTopology(), commandTimeout, ReadFrom.UPSTREAM);
     }
 
     @Bean
     public RedisTemplate<String, Object> redisTemplate() {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(redisConnectionFactory());
-        
+
         // Use String serializer for keys
         template.setKeySerializer(new StringRedisSerializer());
         template.setHashKeySerializer(new StringRedisSerializer());
-        
+
         // Use JSON serializer for values
         template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
         template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
-        
+
         template.afterPropertiesSet();
         return template;
     }
-}
\ No newline at end of file
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer() {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory());
+        return container;
+    }
+
+    @Bean
+    public RedisTemplate<String, byte[]> binaryRedisTemplate() {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(redisConnectionFactory());
+
+        // Raw bytes for compact binary records
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.setEnableDefaultSerializer(false);
+
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    // Blacklist checks run on every request, they get their own connection with a tight
+    // command timeout instead of the 2s default so a stalled Redis cannot stall requests.
+    // They tolerate replication lag, so they are spread over the replicas.
+    @Bean
+    public RedisConnectionFactory blacklistReadConnectionFactory() {
+        return lettuceConnectionFactory(redisTopology(), blacklistReadTimeout, ReadFrom.valueOf(blacklistReadFrom));
+    }
+
+    @Bean
+    public RedisTemplate<String, String> blacklistReadRedisTemplate() {
+        RedisTemplate<String, String> template = new RedisTemplate<>();
+        template.setConnectionFactory(blacklistReadConnectionFactory());
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new StringRedisSerializer());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    public static LettuceConnectionFactory lettuceConnectionFactory(RedisConfiguration topology,
+                                                                    Duration commandTimeout,
+                                                                    ReadFrom readFrom) {
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder clientConfig =
+                LettuceClientConfiguration.builder().commandTimeout(commandTimeout);
+
+        // A standalone server has nothing to choose from
+        if (!(topology instanceof RedisStandaloneConfiguration)) {
+            clientConfig.readFrom(readFrom);
+        }
+        return new LettuceConnectionFactory(topology, clientConfig.build());
+    }
+
+    private RedisConfiguration redisTopology() {
+        RedisPassword password = RedisPassword.of(redisPassword.isEmpty() ? null : redisPassword);
+
+        if (StringUtils.hasText(clusterNodes)) {
+            RedisClusterConfiguration config = new RedisClusterConfiguration(List.of(clusterNodes.split(",")));
+            config.setPassword(password);
+            return config;
+        }
+
+        if (StringUtils.hasText(sentinelMaster)) {
+            RedisSentinelConfiguration config = new RedisSentinelConfiguration();
+            config.master(sentinelMaster);
+            nodes(sentinelNodes).forEach(config::addSentinel);
+            config.setPassword(password);
+            return config;
+        }
+
+        if (StringUtils.hasText(replicaNodes)) {
+            RedisStaticMasterReplicaConfiguration config = new RedisStaticMasterReplicaConfiguration(redisHost, redisPort);
+            nodes(replicaNodes).forEach(node -> config.node(node.getHost(), node.getPort()));
+            config.setPassword(password);
+            return config;
+        }
+
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(redisHost, redisPort);
+        config.setPassword(password);
+        return config;
+    }
+
+    private static List<RedisNode> nodes(String hostAndPorts) {
+        return Arrays.stream(hostAndPorts.split(","))
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .map(RedisNode::fromString)
+                .toList();
+    }
+
+}
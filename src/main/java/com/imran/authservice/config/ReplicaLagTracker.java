@@ -0,0 +1,167 @@
+package com.imran.authservice.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.imran.authservice.event.UserModifiedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+
+/**
+ * Keeps a user's reads on the primary until the replica has replayed that user's
+ * last write on this node.
+ * <p>
+ * Every lsn-poll-interval the primary's WAL position and the replica's replay
+ * position are sampled. A committed write only remembers which poll it came after,
+ * in process and for at most sticky-window, so neither writes nor reads pay a
+ * round trip: the user is behind until the replica has replayed the primary
+ * position of the next poll, which already includes the write. Requests landing
+ * on another node are not pinned and may see the replica's lag.
+ */
+@Component
+@Slf4j
+public class ReplicaLagTracker {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private static final String PRIMARY_LSN_SQL = "SELECT pg_current_wal_lsn()::text";
+    // Falls back to the current position when the "replica" is not in recovery, e.g. a local setup
+    private static final String REPLAY_LSN_SQL = "SELECT coalesce(pg_last_wal_replay_lsn(), pg_current_wal_lsn())::text";
+    // Polls older than this are given up on, a later one that is replayed covers them anyway
+    private static final int MAX_PENDING_POLLS = 1024;
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final Cache<UUID, Long> writtenAfterPoll;
+
+    // Guarded by this: primary positions of polls the replica has not replayed yet, as {poll, lsn}
+    private final Deque<long[]> pendingPolls = new ArrayDeque<>();
+    // Number of the last poll started, published before the primary is asked
+    private volatile long startedPoll;
+    // Last poll whose primary position the replica has replayed
+    private volatile long replayedPoll;
+
+    @Autowired
+    public ReplicaLagTracker(@Qualifier("primaryDataSource") ObjectProvider<DataSource> primaryDataSource,
+                             @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource,
+                             @Value("${spring.datasource.replica.sticky-window:30s}") Duration stickyWindow) {
+        this(jdbcTemplate(primaryDataSource), jdbcTemplate(replicaDataSource), stickyWindow);
+    }
+
+    ReplicaLagTracker(JdbcTemplate primary, JdbcTemplate replica, Duration stickyWindow) {
+        this.primary = primary;
+        this.replica = replica;
+        this.writtenAfterPoll = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(stickyWindow)
+                .build();
+    }
+
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    @EventListener
+    public void onUserModified(UserModifiedEvent event) {
+        if (replica == null) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recordWrite(event.getUserId());
+                }
+            });
+        } else {
+            recordWrite(event.getUserId());
+        }
+    }
+
+    // Whether reads of the current transaction are served by the primary
+    public boolean readsFromPrimary() {
+        return replica == null || isPrimaryRequired();
+    }
+
+    // Must be called inside the transaction, before its first query
+    public void pinIfRecentlyWritten(UUID userId) {
+        if (replica == null || userId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        Long writtenAfter = writtenAfterPoll.getIfPresent(userId);
+        if (writtenAfter == null || replayedPoll > writtenAfter) {
+            return;
+        }
+
+        log.debug("Routing reads for user {} to primary until the replica catches up", userId);
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                PRIMARY_REQUIRED.remove();
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${spring.datasource.replica.lsn-poll-interval:200ms}")
+    public synchronized void pollReplayPosition() {
+        if (replica == null) {
+            return;
+        }
+
+        // A write committed before this point is included in the position read below
+        long poll = startedPoll + 1;
+        startedPoll = poll;
+        try {
+            pendingPolls.addLast(new long[] {poll, parseLsn(primary.queryForObject(PRIMARY_LSN_SQL, String.class))});
+            if (pendingPolls.size() > MAX_PENDING_POLLS) {
+                pendingPolls.removeFirst();
+            }
+        } catch (Exception e) {
+            log.debug("Could not read primary WAL position: {}", e.getMessage());
+        }
+
+        long replayed;
+        try {
+            replayed = parseLsn(replica.queryForObject(REPLAY_LSN_SQL, String.class));
+        } catch (Exception e) {
+            log.debug("Could not read replica replay position: {}", e.getMessage());
+            return;
+        }
+        while (!pendingPolls.isEmpty() && Long.compareUnsigned(pendingPolls.peekFirst()[1], replayed) <= 0) {
+            replayedPoll = pendingPolls.removeFirst()[0];
+        }
+    }
+
+    private void recordWrite(UUID userId) {
+        writtenAfterPoll.put(userId, startedPoll);
+    }
+
+    private static JdbcTemplate jdbcTemplate(ObjectProvider<DataSource> dataSource) {
+        DataSource pool = dataSource.getIfAvailable();
+        return pool == null ? null : new JdbcTemplate(pool);
+    }
+
+    // "16/B374D848" -> 0x16B374D848
+    static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        return (Long.parseLong(lsn.substring(0, slash), 16) << 32) | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+
+}
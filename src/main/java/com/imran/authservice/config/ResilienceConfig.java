@@ -0,0 +1,53 @@
+package com.imran.authservice.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Circuit breakers around remote calls on the request path. State, failure rate
+ * and call outcomes are exported as resilience4j.circuitbreaker.* meters.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    @Value("${security.blacklist.read-timeout:50ms}")
+    private Duration slowCallThreshold;
+
+    @Value("${security.blacklist.breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${security.blacklist.breaker.wait-in-open-state:5s}")
+    private Duration waitInOpenState;
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(MeterRegistry meterRegistry) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(redisCircuitBreakerConfig(
+                slowCallThreshold, failureRateThreshold, waitInOpenState));
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    // Calls that time out count as failures, calls close to the budget as slow
+    public static CircuitBreakerConfig redisCircuitBreakerConfig(Duration slowCallThreshold,
+                                                                 float failureRateThreshold,
+                                                                 Duration waitInOpenState) {
+        return CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(50)
+                .minimumNumberOfCalls(10)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(slowCallThreshold)
+                .slowCallRateThreshold(failureRateThreshold)
+                .waitDurationInOpenState(waitInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(5)
+                .build();
+    }
+
+}
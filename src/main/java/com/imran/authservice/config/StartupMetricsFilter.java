@@ -0,0 +1,57 @@
+package com.imran.authservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records how long after JVM start the first request was served, the number that
+ * matters when replicas are added during a login storm. Complements Boot's
+ * application.started.time and application.ready.time.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StartupMetricsFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean firstRequestSeen = new AtomicBoolean();
+
+    // Probes and scrapes start long before the first client request and would mask it
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return firstRequestSeen.get() || request.getServletPath().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // Synthetic warm-up traffic runs before readiness and is not what clients see
+            if (request.getHeader(ApplicationWarmup.WARMUP_HEADER) == null
+                    && !firstRequestSeen.get() && firstRequestSeen.compareAndSet(false, true)) {
+                long sinceJvmStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+                TimeGauge.builder("application.first.request.time", () -> sinceJvmStart, TimeUnit.MILLISECONDS)
+                        .description("Time from JVM start until the first request completed")
+                        .register(meterRegistry);
+                log.info("First request served {} ms after JVM start", sinceJvmStart);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.imran.authservice.controller;
+
+import com.imran.authservice.enums.Role;
+import com.imran.authservice.enums.UserStatus;
+import com.imran.authservice.model.User;
+import com.imran.authservice.service.UserExportService;
+import com.imran.authservice.service.UserImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/v1/admin/users")
+@RequiredArgsConstructor
+@Slf4j
+@PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminUserController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final UserImportService userImportService;
+    private final UserExportService userExportService;
+
+    @Operation(
+            summary = "Bulk import users",
+            description = "Streams NDJSON or CSV (with header) user records and streams back one NDJSON result per row. " +
+                    "Rows with a role other than USER are rejected unless the caller is SUPER_ADMIN"
+    )
+    @PostMapping(value = "/import", consumes = {NDJSON, "text/csv"}, produces = NDJSON)
+    public void importUsers(@AuthenticationPrincipal User caller,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        boolean csv = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.parseMediaType("text/csv"));
+        log.info("Bulk user import started ({})", csv ? "csv" : "ndjson");
+
+        // Written directly so nothing is buffered and no async timeout applies to long imports
+        response.setContentType(NDJSON);
+        userImportService.importUsers(request.getInputStream(), csv, caller.getRole(), response.getOutputStream());
+    }
+
+    @Operation(
+            summary = "Export users",
+            description = "Streams users as NDJSON, optionally filtered by status, role and createdAt range [from, to)"
+    )
+    @GetMapping(value = "/export", produces = NDJSON)
+    public void exportUsers(@RequestParam(required = false) UserStatus status,
+                            @RequestParam(required = false) Role role,
+                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+                            HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        userExportService.exportUsers(status, role, createdFrom, createdTo, response.getOutputStream());
+    }
+
+}
@@ -2,15 +2,20 @@ package com.imran.authservice.controller;
 
 import com.imran.authservice.dto.*;
 import com.imran.authservice.service.AuthService;
+import com.imran.authservice.service.UserVersionCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/v1/auth")
@@ -19,6 +24,7 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final AuthService authService;
+    private final UserVersionCache userVersionCache;
 
     @PostMapping("/register")
     public ResponseEntity<AuthResponse> register(@Valid @RequestBody RegisterRequest request) {
@@ -36,6 +42,44 @@ public class AuthController {
         return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
     }
 
+    @Operation(summary = "Verify MFA code", description = "Exchange the MFA token from login and a TOTP code for tokens")
+    @PostMapping("/mfa/verify")
+    public ResponseEntity<AuthResponse> verifyMfa(@Valid @RequestBody MfaVerifyRequest request,
+                                                  HttpServletRequest servletRequest) {
+        String ipAddress = servletRequest.getRemoteAddr();
+        String userAgent = servletRequest.getHeader("User-Agent");
+
+        AuthResponse response = authService.verifyMfa(request, ipAddress, userAgent);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @Operation(summary = "Verify email", description = "Redeem the one-time token from the verification email")
+    @GetMapping("/verify-email/{token}")
+    public ResponseEntity<String> verifyEmail(@PathVariable String token) {
+        return ResponseEntity.status(HttpStatus.OK).body(authService.verifyEmail(token));
+    }
+
+    @Operation(summary = "Request password reset", description = "Email a one-time password reset token")
+    @PostMapping("/forgot-password")
+    public ResponseEntity<String> forgotPassword(@Valid @RequestBody ForgotPasswordRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(authService.requestPasswordReset(request));
+    }
+
+    @Operation(summary = "Reset password", description = "Set a new password with a one-time reset token")
+    @PostMapping("/reset-password")
+    public ResponseEntity<String> resetPassword(@Valid @RequestBody ResetPasswordRequest request) {
+        return ResponseEntity.status(HttpStatus.OK).body(authService.resetPassword(request));
+    }
+
+    @Operation(summary = "Refresh tokens", description = "Exchange a refresh token for a new access and refresh token")
+    @PostMapping("/refresh-token")
+    public ResponseEntity<AuthResponse> refreshToken(@RequestBody RefreshTokenRequest request,
+                                                     HttpServletRequest servletRequest) {
+        AuthResponse response = authService.refreshToken(request.getRefreshToken(),
+                servletRequest.getRemoteAddr(), servletRequest.getHeader("User-Agent"));
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
     @Operation(
             summary = "Logout user",
             description = "Logout user and invalidate tokens",
@@ -51,18 +95,39 @@ public class AuthController {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             accessToken = authHeader.substring(7);
         }
-        String response = authService.logout(request.getRefreshToken(),  accessToken);
+        String response = authService.logout(request.getRefreshToken(), accessToken,
+                servletRequest.getRemoteAddr(), servletRequest.getHeader("User-Agent"));
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
+    @Operation(summary = "Validate access token",
+            description = "204 if the bearer token passes the same checks as gRPC Validate, 401 otherwise")
+    @GetMapping("/validate")
+    public ResponseEntity<Void> validate() {
+        // The bearer filter has already verified, checked revocation and loaded the user
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/me")
-    public ResponseEntity<UserDto> getCurrentUser() {
+    public ResponseEntity<UserDto> getCurrentUser(WebRequest webRequest) {
         log.info("Getting current user");
 
         try {
+            // A known version answers If-None-Match / If-Modified-Since without touching the database
+            UUID userId = authService.getCurrentUserId();
+            Long version = userVersionCache.get(userId);
+            if (version != null && webRequest.checkNotModified(eTag(userId, version), version)) {
+                return null;
+            }
+
             UserDto userDto = authService.getCurrentUser();
+            long currentVersion = UserVersionCache.versionOf(userDto.getUpdatedAt());
             log.debug("Returning current user for {}", userDto.getEmail());
-            return ResponseEntity.status(HttpStatus.OK).body(userDto);
+            return ResponseEntity.status(HttpStatus.OK)
+                    .eTag(eTag(userId, currentVersion))
+                    .lastModified(currentVersion)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(userDto);
         } catch (Exception e) {
             log.error("Error while getting current user: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
@@ -70,6 +135,10 @@ public class AuthController {
 
     }
 
+    private static String eTag(UUID userId, long version) {
+        return "\"" + userId + "-" + Long.toHexString(version) + "\"";
+    }
+
 }
 
 
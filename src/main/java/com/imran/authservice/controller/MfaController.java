@@ -0,0 +1,46 @@
+package com.imran.authservice.controller;
+
+import com.imran.authservice.dto.MfaCodeRequest;
+import com.imran.authservice.dto.MfaSetupResponse;
+import com.imran.authservice.model.User;
+import com.imran.authservice.service.MfaService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/mfa")
+@RequiredArgsConstructor
+@Slf4j
+@SecurityRequirement(name = "bearerAuth")
+public class MfaController {
+
+    private final MfaService mfaService;
+
+    @Operation(summary = "Start MFA enrollment", description = "Generate a TOTP secret and otpauth URI for an authenticator app")
+    @PostMapping("/setup")
+    public ResponseEntity<MfaSetupResponse> setup(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(mfaService.setup(user));
+    }
+
+    @Operation(summary = "Enable MFA", description = "Confirm enrollment with a code from the authenticator app")
+    @PostMapping("/enable")
+    public ResponseEntity<Void> enable(@AuthenticationPrincipal User user, @Valid @RequestBody MfaCodeRequest request) {
+        mfaService.enable(user, request.getCode());
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
+
+    @Operation(summary = "Disable MFA", description = "Turn MFA off, a current code is required")
+    @PostMapping("/disable")
+    public ResponseEntity<Void> disable(@AuthenticationPrincipal User user, @Valid @RequestBody MfaCodeRequest request) {
+        mfaService.disable(user, request.getCode());
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.imran.authservice.controller;
+
+import com.imran.authservice.dto.RefreshTokenRequest;
+import com.imran.authservice.dto.SessionPageResponse;
+import com.imran.authservice.model.User;
+import com.imran.authservice.service.SessionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/sessions")
+@RequiredArgsConstructor
+@Slf4j
+@SecurityRequirement(name = "bearerAuth")
+public class SessionController {
+
+    private final SessionService sessionService;
+
+    @Operation(summary = "List active sessions", description = "Active device sessions, newest first, keyset paginated")
+    @GetMapping
+    public ResponseEntity<SessionPageResponse> listSessions(@AuthenticationPrincipal User user,
+                                                            @RequestParam(required = false) String cursor,
+                                                            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(sessionService.listActiveSessions(user, cursor, size));
+    }
+
+    @Operation(summary = "Revoke a session", description = "Revoke the refresh token of a single device")
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Void> revokeSession(@AuthenticationPrincipal User user, @PathVariable UUID sessionId) {
+        sessionService.revokeSession(user, sessionId);
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
+
+    @Operation(summary = "Revoke other sessions", description = "Revoke every session except the one owning the given refresh token")
+    @PostMapping("/revoke-others")
+    public ResponseEntity<Map<String, Integer>> revokeOtherSessions(@AuthenticationPrincipal User user,
+                                                                    @RequestBody RefreshTokenRequest request) {
+        int revoked = sessionService.revokeOtherSessions(user, request.getRefreshToken());
+        return ResponseEntity.ok(Map.of("revoked", revoked));
+    }
+
+}
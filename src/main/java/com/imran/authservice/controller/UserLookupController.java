@@ -0,0 +1,44 @@
+package com.imran.authservice.controller;
+
+import com.imran.authservice.dto.UserLookupRequest;
+import com.imran.authservice.model.User;
+import com.imran.authservice.service.UserLookupService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/v1/users")
+@RequiredArgsConstructor
+@SecurityRequirement(name = "bearerAuth")
+@PreAuthorize("hasAnyRole('SERVICE', 'ADMIN', 'SUPER_ADMIN')")
+public class UserLookupController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final UserLookupService userLookupService;
+
+    @Operation(
+            summary = "Resolve users in bulk",
+            description = "Resolves up to max-batch-size user ids and emails to display fields, one NDJSON line per distinct key. " +
+                    "Service accounts may only look up ids"
+    )
+    @PostMapping(value = "/lookup", consumes = MediaType.APPLICATION_JSON_VALUE, produces = NDJSON)
+    public void lookup(@AuthenticationPrincipal User caller,
+                       @RequestBody UserLookupRequest request,
+                       HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        userLookupService.lookup(request, caller.getRole(), response.getOutputStream());
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.imran.authservice.dto;
 
+import com.imran.authservice.enums.TokenMode;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
@@ -14,4 +15,7 @@ public class AuthRequest {
     @NotBlank(message = "Password is required!")
     private String password;
 
+    // Optional, clients that prefer instant revocation over self-contained tokens ask for OPAQUE
+    private TokenMode tokenMode;
+
 }
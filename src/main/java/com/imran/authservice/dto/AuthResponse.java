@@ -20,4 +20,8 @@ public class AuthResponse {
     private UserDto user;
     private String message;
 
+    // Set instead of tokens when the account requires a second factor
+    private Boolean mfaRequired;
+    private String mfaToken;
+
 }
@@ -0,0 +1,14 @@
+package com.imran.authservice.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class ForgotPasswordRequest {
+
+    @NotBlank(message = "Email is required!")
+    @Email(message = "Invalid email format!")
+    private String email;
+
+}
@@ -0,0 +1,14 @@
+package com.imran.authservice.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+@Data
+public class MfaCodeRequest {
+
+    @NotBlank(message = "Code is required!")
+    @Pattern(regexp = "\\d{6}", message = "Code must be 6 digits!")
+    private String code;
+
+}
@@ -0,0 +1,17 @@
+package com.imran.authservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MfaSetupResponse {
+
+    private String secret;
+    private String otpAuthUri;
+
+}
@@ -0,0 +1,17 @@
+package com.imran.authservice.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class ResetPasswordRequest {
+
+    @NotBlank(message = "Token is required!")
+    private String token;
+
+    @NotBlank(message = "Password is required!")
+    @Size(min = 8, message = "Password must be at least 8 characters!")
+    private String newPassword;
+
+}
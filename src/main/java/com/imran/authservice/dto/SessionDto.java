@@ -0,0 +1,20 @@
+package com.imran.authservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionDto {
+    private UUID id;
+    private String ipAddress;
+    private String userAgent;
+    private LocalDateTime expiryDate;
+}
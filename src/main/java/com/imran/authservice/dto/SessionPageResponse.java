@@ -0,0 +1,22 @@
+package com.imran.authservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SessionPageResponse {
+
+    private List<SessionDto> sessions;
+    // Pass back as ?cursor= to get the next page, absent on the last page
+    private String nextCursor;
+
+}
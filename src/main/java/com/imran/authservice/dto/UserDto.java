@@ -24,8 +24,10 @@ public class UserDto {
     private UserStatus status;
     private Role role;
     private LocalDateTime lastLogin;
+    private boolean emailVerified;
     private boolean mfaEnabled;
     private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
 }
 
 
@@ -0,0 +1,20 @@
+package com.imran.authservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.imran.authservice.enums.ImportStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportResult {
+    private long line;
+    private String email;
+    private ImportStatus status;
+    private String message;
+}
@@ -0,0 +1,15 @@
+package com.imran.authservice.dto;
+
+import lombok.Data;
+
+// One NDJSON object or CSV line of a bulk import; either password or passwordHash is required
+@Data
+public class UserImportRow {
+    private String email;
+    private String username;
+    private String password;
+    private String passwordHash;
+    private String firstName;
+    private String lastName;
+    private String role;
+}
@@ -0,0 +1,13 @@
+package com.imran.authservice.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class UserLookupRequest {
+    private List<UUID> ids = new ArrayList<>();
+    private List<String> emails = new ArrayList<>();
+}
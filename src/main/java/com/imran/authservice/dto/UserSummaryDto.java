@@ -0,0 +1,23 @@
+package com.imran.authservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+// Display fields for batch lookups; email is only echoed back to callers that looked up by email
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserSummaryDto {
+    private UUID id;
+    private String email;
+    private String username;
+    private String firstName;
+    private String lastName;
+}
@@ -0,0 +1,5 @@
+package com.imran.authservice.enums;
+
+public enum AuditEventType {
+    LOGIN_SUCCESS, LOGIN_FAILURE, MFA_CHALLENGE, MFA_FAILURE, LOGOUT, TOKEN_REFRESH, PASSWORD_RESET
+}
@@ -0,0 +1,15 @@
+package com.imran.authservice.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+// Share of the adaptive concurrency limit each class may occupy, lower classes are shed first
+@Getter
+@RequiredArgsConstructor
+public enum RequestPriority {
+    CRITICAL(1.0),
+    LOGIN(0.85),
+    BACKGROUND(0.6);
+
+    private final double limitShare;
+}
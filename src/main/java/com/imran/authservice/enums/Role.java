@@ -1,5 +1,7 @@
 package com.imran.authservice.enums;
 
 public enum Role {
-    USER, ADMIN, SUPER_ADMIN
+    USER, ADMIN, SUPER_ADMIN,
+    // Accounts of other services, e.g. for user lookups by id
+    SERVICE
 }
\ No newline at end of file
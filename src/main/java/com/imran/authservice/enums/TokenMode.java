@@ -0,0 +1,5 @@
+package com.imran.authservice.enums;
+
+public enum TokenMode {
+    JWT, OPAQUE
+}
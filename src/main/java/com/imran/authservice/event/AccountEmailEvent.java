@@ -0,0 +1,16 @@
+package com.imran.authservice.event;
+
+import com.imran.authservice.enums.OneTimeTokenPurpose;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Published when a one-time token has to reach the account's mailbox
+@Getter
+@AllArgsConstructor
+public class AccountEmailEvent {
+
+    private final String email;
+    private final OneTimeTokenPurpose purpose;
+    private final String token;
+
+}
@@ -0,0 +1,15 @@
+package com.imran.authservice.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+// Published whenever a write path changes a users row
+@Getter
+@AllArgsConstructor
+public class UserModifiedEvent {
+
+    private final UUID userId;
+
+}
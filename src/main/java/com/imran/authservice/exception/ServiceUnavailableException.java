@@ -0,0 +1,8 @@
+package com.imran.authservice.exception;
+
+// A dependency the request must not succeed without is unavailable, answered with 503
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,74 @@
+package com.imran.authservice.grpc;
+
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallExecutorSupplier;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Admission for the validation executor, decided on the transport thread before
+ * a call is handed to the pool.
+ * <p>
+ * A pool that rejects a task makes Netty reset the stream, which clients see as
+ * INTERNAL. Instead every call needs one of a fixed number of slots for its whole
+ * lifetime; a call without one runs on the transport thread only long enough to be
+ * closed with RESOURCE_EXHAUSTED, which clients can retry against another replica.
+ * A call has at most one task queued at a time, so the pool's queue never grows
+ * beyond the number of slots.
+ */
+public class GrpcLoadShedder implements ServerCallExecutorSupplier, ServerInterceptor {
+
+    private static final ThreadLocal<Boolean> SHEDDING = new ThreadLocal<>();
+
+    private final Executor executor;
+    private final Semaphore slots;
+    private final Counter shed;
+    private final Executor sheddingExecutor = runnable -> {
+        SHEDDING.set(Boolean.TRUE);
+        try {
+            runnable.run();
+        } finally {
+            SHEDDING.remove();
+        }
+    };
+
+    public GrpcLoadShedder(Executor executor, int maxCalls, MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.slots = new Semaphore(maxCalls);
+        this.shed = Counter.builder("grpc.server.shed")
+                .description("gRPC calls rejected because the validation executor was full")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <Q> Executor getExecutor(ServerCall<Q, ?> call, Metadata headers) {
+        if (!slots.tryAcquire()) {
+            return sheddingExecutor;
+        }
+        // Runs in the call's context, which is cancelled once the call completes either way
+        Context.current().addListener(context -> slots.release(), Runnable::run);
+        return executor;
+    }
+
+    @Override
+    public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call,
+                                                       Metadata headers,
+                                                       ServerCallHandler<Q, R> next) {
+        if (SHEDDING.get() == null) {
+            return next.startCall(call, headers);
+        }
+        shed.increment();
+        call.close(Status.RESOURCE_EXHAUSTED.withDescription("Token validation is overloaded, retry"), new Metadata());
+        return new ServerCall.Listener<>() {
+        };
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.imran.authservice.grpc;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records grpc.server.calls per method and status code, with a percentile histogram
+ * so gRPC and REST latency (http.server.requests) compare on the same dashboard.
+ */
+@RequiredArgsConstructor
+public class GrpcMetricsInterceptor implements ServerInterceptor {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call,
+                                                       Metadata headers,
+                                                       ServerCallHandler<Q, R> next) {
+        long start = System.nanoTime();
+        String method = call.getMethodDescriptor().getBareMethodName();
+
+        return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                Timer.builder("grpc.server.calls")
+                        .description("gRPC calls served")
+                        .tag("method", method == null ? "unknown" : method)
+                        .tag("status", status.getCode().name())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                super.close(status, trailers);
+            }
+        }, headers);
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.imran.authservice.grpc;
+
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP/2 gRPC endpoint next to the servlet container, with its own bounded
+ * executor so validation traffic from the mesh neither competes with Tomcat's
+ * request threads nor queues without limit behind them. Calls beyond the
+ * executor's capacity are answered with RESOURCE_EXHAUSTED by {@link GrpcLoadShedder}.
+ */
+@Component
+@ConditionalOnProperty(name = "grpc.server.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class GrpcServer implements SmartLifecycle {
+
+    private final Server server;
+    private final ExecutorService executor;
+    private volatile boolean running;
+
+    public GrpcServer(TokenValidationGrpcService tokenValidationService,
+                      MeterRegistry meterRegistry,
+                      @Value("${grpc.server.port:9090}") int port,
+                      @Value("${grpc.server.threads:8}") int threads,
+                      @Value("${grpc.server.queue-capacity:1000}") int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        // Bounded by the shedder's slots rather than by the queue, a rejected task would reset the stream
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "grpc-validation-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "grpc-validation");
+
+        GrpcLoadShedder shedder = new GrpcLoadShedder(executor, threads + queueCapacity, meterRegistry);
+
+        // Only method lookup runs on the transport thread, the shedder moves every admitted call to the pool
+        this.server = NettyServerBuilder.forPort(port)
+                .directExecutor()
+                .callExecutor(shedder)
+                .addService(ServerInterceptors.intercept(tokenValidationService,
+                        shedder, new GrpcMetricsInterceptor(meterRegistry)))
+                .build();
+    }
+
+    @Override
+    public void start() {
+        try {
+            server.start();
+            running = true;
+            log.info("gRPC token validation listening on port {}", server.getPort());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start gRPC server", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        server.shutdown();
+        try {
+            if (!server.awaitTermination(10, TimeUnit.SECONDS)) {
+                server.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            server.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.imran.authservice.grpc;
+
+import com.google.protobuf.ByteString;
+import com.imran.authservice.grpc.v1.Claims;
+import com.imran.authservice.grpc.v1.TokenValidationGrpc;
+import com.imran.authservice.grpc.v1.ValidateBatchRequest;
+import com.imran.authservice.grpc.v1.ValidateBatchResponse;
+import com.imran.authservice.grpc.v1.ValidateRequest;
+import com.imran.authservice.grpc.v1.ValidateResponse;
+import com.imran.authservice.grpc.v1.ValidationStatus;
+import com.imran.authservice.security.AccessTokenClaims;
+import com.imran.authservice.security.CustomUserDetailsService;
+import com.imran.authservice.security.JwtTokenProvider;
+import com.imran.authservice.security.OpaqueTokenService;
+import com.imran.authservice.service.TokenBlacklistService;
+import io.grpc.stub.StreamObserver;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * gRPC token validation with the same checks as the bearer filter: signature and
+ * expiry through {@link JwtTokenProvider}, revocation through
+ * {@link TokenBlacklistService}, opaque handles through {@link OpaqueTokenService}.
+ * The token's user is then loaded like the filter does, and a locked, disabled or
+ * deleted account makes the token INVALID.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TokenValidationGrpcService extends TokenValidationGrpc.TokenValidationImplBase {
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final TokenBlacklistService tokenBlacklistService;
+    private final OpaqueTokenService opaqueTokenService;
+    private final CustomUserDetailsService customUserDetailsService;
+
+    @Override
+    public void validate(ValidateRequest request, StreamObserver<ValidateResponse> responseObserver) {
+        responseObserver.onNext(validate(request));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void validateBatch(ValidateBatchRequest request, StreamObserver<ValidateBatchResponse> responseObserver) {
+        ValidateBatchResponse.Builder response = ValidateBatchResponse.newBuilder();
+        for (ValidateRequest tokenRequest : request.getRequestsList()) {
+            response.addResponses(validate(tokenRequest));
+        }
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<ValidateRequest> validateStream(StreamObserver<ValidateResponse> responseObserver) {
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(ValidateRequest request) {
+                responseObserver.onNext(validate(request));
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.debug("Validation stream closed by client: {}", t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                responseObserver.onCompleted();
+            }
+        };
+    }
+
+    ValidateResponse validate(ValidateRequest request) {
+        ValidateResponse.Builder response = ValidateResponse.newBuilder()
+                .setCorrelationId(request.getCorrelationId());
+        String token = request.getToken();
+        if (token.isEmpty()) {
+            return response.setStatus(ValidationStatus.INVALID).build();
+        }
+
+        if (OpaqueTokenService.isOpaqueToken(token)) {
+            OpaqueTokenService.OpaqueSession session = opaqueTokenService.resolve(token).orElse(null);
+            if (session == null) {
+                return response.setStatus(ValidationStatus.REVOKED).build();
+            }
+            if (!isUsable(session.getUserId().toString())) {
+                return response.setStatus(ValidationStatus.INVALID).build();
+            }
+            return response.setStatus(ValidationStatus.VALID)
+                    .setClaims(Claims.newBuilder()
+                            .setUserId(uuidBytes(session.getUserId()))
+                            .setRoles(session.getRole().name())
+                            .setIssuedAt(session.getIssuedAt() / 1000)
+                            .setExpiresAt(session.getExpiresAt() / 1000))
+                    .build();
+        }
+
+        AccessTokenClaims claims = jwtTokenProvider.parseAccessToken(token);
+        if (claims == null) {
+            return response.setStatus(ValidationStatus.INVALID).build();
+        }
+        if (tokenBlacklistService.isTokenBlacklisted(token, claims)) {
+            return response.setStatus(ValidationStatus.REVOKED).build();
+        }
+        if (!isUsable(claims.getSubject())) {
+            return response.setStatus(ValidationStatus.INVALID).build();
+        }
+        return response.setStatus(ValidationStatus.VALID)
+                .setClaims(toClaims(claims))
+                .build();
+    }
+
+    // Served from the second-level cache, which writes to the user evict
+    private boolean isUsable(String userId) {
+        try {
+            UserDetails user = customUserDetailsService.loadUserById(userId);
+            return user.isEnabled() && user.isAccountNonLocked();
+        } catch (UsernameNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static Claims toClaims(AccessTokenClaims claims) {
+        Claims.Builder builder = Claims.newBuilder()
+                .setUserId(uuidBytes(claims.getUserId()));
+        if (claims.getEmail() != null) {
+            builder.setEmail(claims.getEmail());
+        }
+        if (claims.getUsername() != null) {
+            builder.setUsername(claims.getUsername());
+        }
+        if (claims.getRoles() != null) {
+            builder.setRoles(claims.getRoles());
+        }
+        if (claims.getIssuedAt() != null) {
+            builder.setIssuedAt(claims.getIssuedAt());
+        }
+        if (claims.getExpiresAt() != null) {
+            builder.setExpiresAt(claims.getExpiresAt());
+        }
+        return builder.build();
+    }
+
+    private static ByteString uuidBytes(UUID uuid) {
+        return ByteString.copyFrom(ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array());
+    }
+
+}
@@ -4,10 +4,12 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+// One row per revoked token digest, or per user-wide revocation with a "user:{userId}" digest
 @Entity
 @Table(name = "blacklisted_tokens")
 @Data
@@ -16,11 +18,12 @@ import java.util.UUID;
 public class BlacklistedToken {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedValue
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     private UUID id;
 
-    @Column(nullable = false, unique = true, length = 500)
-    private String token;
+    @Column(nullable = false, length = 64)
+    private String tokenDigest;
 
     @Column(nullable = false)
     private LocalDateTime blacklistedAt;
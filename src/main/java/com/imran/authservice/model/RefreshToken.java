@@ -1,15 +1,18 @@
 package com.imran.authservice.model;
 
+import com.imran.authservice.enums.TokenMode;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
+// Constraints and indexes are owned by the Flyway migrations in db/migration
 @Table(name = "refresh_tokens")
 @Data
 @Builder
@@ -17,20 +20,29 @@ import java.util.UUID;
 @NoArgsConstructor
 public class RefreshToken {
 
+    // Time-ordered so every login appends to the right edge of the primary key index
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedValue
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     private UUID id;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @Column(nullable = false, unique = true)
-    private String token;
+    // SHA-256 of the token, the token itself is only ever held by the client
+    @Column(name = "token_hash", nullable = false, length = 32)
+    private byte[] tokenHash;
 
     @Column(nullable = false)
     private LocalDateTime expiryDate;
 
+    // Access token kind issued on refresh, the one the session was opened with
+    @Enumerated(EnumType.STRING)
+    @Column(name = "token_mode", nullable = false, length = 16)
+    @Builder.Default
+    private TokenMode tokenMode = TokenMode.JWT;
+
     @Column(nullable = false)
     private String ipAddress;
 
@@ -41,6 +53,10 @@ public class RefreshToken {
 
     private LocalDateTime revokedAt;
 
+    // Revoked by a refresh rather than a logout, a session revoke or a password reset
+    @Column(nullable = false)
+    private boolean rotated;
+
 }
 
 
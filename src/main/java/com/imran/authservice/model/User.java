@@ -7,8 +7,14 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnTransformer;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.UuidGenerator;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -16,27 +22,39 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 @Entity
-@Table(name = "users", indexes = {
-        @Index(name = "idx_email", columnList = "email"),
-        @Index(name = "idx_username", columnList = "username")
-})
+// Constraints and indexes are owned by the Flyway migrations in db/migration
+@Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.NATURAL_ID_CACHE_REGION)
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class User implements UserDetails {
 
+    public static final String CACHE_REGION = "users";
+    public static final String NATURAL_ID_CACHE_REGION = "users-by-email";
+    public static final String USERNAME_QUERY_CACHE_REGION = "users-by-username";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedValue
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     private UUID id;
 
-    @Column(nullable = false, unique = true)
+    // Stored lowercase; reading through lower() makes every email predicate Hibernate
+    // renders, natural id loads included, match the unique lower(email) index
+    @NaturalId(mutable = true)
+    @ColumnTransformer(read = "lower(email)")
+    @Column(nullable = false)
     private String email;
 
-    @Column(nullable = false, unique = true)
+    // Kept as entered, uniqueness and lookups are case-insensitive through lower(username)
+    @Column(nullable = false)
     private String username;
 
     @Column(nullable = false)
@@ -56,9 +74,8 @@ public class User implements UserDetails {
     @Builder.Default
     private Role role = Role.USER;
 
-    private String emailVerificationToken;
-
-    private LocalDateTime emailVerificationTokenExpiry;
+    // Verification tokens themselves live in Redis, see OneTimeTokenService
+    private boolean emailVerified;
 
     private String refreshToken;
 
@@ -80,6 +97,16 @@ public class User implements UserDetails {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void normalize() {
+        email = normalizeEmail(email);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
@@ -14,9 +14,11 @@ import java.util.UUID;
 @Repository
 public interface BlacklistedTokenRepository extends JpaRepository<BlacklistedToken, UUID> {
 
-    Optional<BlacklistedToken> findByToken(String token);
+    Optional<BlacklistedToken> findByTokenDigest(String tokenDigest);
 
-    boolean existsByToken(String token);
+    boolean existsByTokenDigest(String tokenDigest);
+
+    long countByExpiresAtAfter(LocalDateTime now);
 
     @Modifying
     @Query("DELETE FROM BlacklistedToken bt WHERE bt.expiresAt < :now")
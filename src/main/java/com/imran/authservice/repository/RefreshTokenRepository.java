@@ -1,21 +1,83 @@
 package com.imran.authservice.repository;
 
+import com.imran.authservice.dto.SessionDto;
 import com.imran.authservice.model.RefreshToken;
 import com.imran.authservice.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
-    Optional<RefreshToken> findByToken(String token);
-    Optional<RefreshToken> findByUserAndRevokedFalse(User user);
+    Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
+    List<RefreshToken> findByUserAndRevokedFalse(User user);
+
+    // Active sessions newest first; filters on rt.user.id so User is never joined or hydrated
+    @Query("SELECT new com.imran.authservice.dto.SessionDto(rt.id, rt.ipAddress, rt.userAgent, rt.expiryDate) " +
+            "FROM RefreshToken rt " +
+            "WHERE rt.user.id = :userId AND rt.revoked = false AND rt.expiryDate > :now " +
+            "ORDER BY rt.expiryDate DESC, rt.id DESC")
+    List<SessionDto> findActiveSessions(@Param("userId") UUID userId,
+                                        @Param("now") LocalDateTime now,
+                                        Limit limit);
+
+    @Query("SELECT new com.imran.authservice.dto.SessionDto(rt.id, rt.ipAddress, rt.userAgent, rt.expiryDate) " +
+            "FROM RefreshToken rt " +
+            "WHERE rt.user.id = :userId AND rt.revoked = false AND rt.expiryDate > :now " +
+            "AND (rt.expiryDate < :afterExpiry OR (rt.expiryDate = :afterExpiry AND rt.id < :afterId)) " +
+            "ORDER BY rt.expiryDate DESC, rt.id DESC")
+    List<SessionDto> findActiveSessionsAfter(@Param("userId") UUID userId,
+                                             @Param("now") LocalDateTime now,
+                                             @Param("afterExpiry") LocalDateTime afterExpiry,
+                                             @Param("afterId") UUID afterId,
+                                             Limit limit);
+
+    // The session's user as stored now, only while the session is live and the account usable.
+    // Not read-only, so a just-revoked session is never seen as live on a lagging replica.
+    @Transactional
+    @Query("SELECT u FROM RefreshToken rt JOIN rt.user u " +
+            "WHERE rt.id = :id AND u.id = :userId AND rt.revoked = false AND rt.expiryDate > :now " +
+            "AND u.status = com.imran.authservice.enums.UserStatus.ACTIVE " +
+            "AND (u.lockedUntil IS NULL OR u.lockedUntil <= :now)")
+    Optional<User> findActiveSessionUser(@Param("id") UUID id,
+                                         @Param("userId") UUID userId,
+                                         @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken rt SET rt.revoked = true, rt.revokedAt = :revokedAt " +
+            "WHERE rt.id = :id AND rt.user.id = :userId AND rt.revoked = false")
+    int revokeSession(@Param("id") UUID id, @Param("userId") UUID userId, @Param("revokedAt") LocalDateTime revokedAt);
+
+    @Query("SELECT rt.id FROM RefreshToken rt " +
+            "WHERE rt.user.id = :userId AND rt.revoked = false AND rt.id <> :keepId AND rt.expiryDate > :now")
+    List<UUID> findOtherActiveSessionIds(@Param("userId") UUID userId, @Param("keepId") UUID keepId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken rt SET rt.revoked = true, rt.revokedAt = :revokedAt " +
+            "WHERE rt.user.id = :userId AND rt.revoked = false AND rt.id <> :keepId")
+    int revokeOtherSessions(@Param("userId") UUID userId, @Param("keepId") UUID keepId, @Param("revokedAt") LocalDateTime revokedAt);
+
+    // Rotation: the revoked guard lets only one concurrent refresh of the same token win
+    @Modifying
+    @Query("UPDATE RefreshToken rt SET rt.revoked = true, rt.rotated = true, rt.revokedAt = :revokedAt " +
+            "WHERE rt.tokenHash = :tokenHash AND rt.revoked = false")
+    int rotateByTokenHash(@Param("tokenHash") byte[] tokenHash, @Param("revokedAt") LocalDateTime revokedAt);
+
+    // Batched logout revocations; the revoked guard makes replays no-ops
+    @Modifying
+    @Query("UPDATE RefreshToken rt SET rt.revoked = true, rt.revokedAt = :revokedAt " +
+            "WHERE rt.tokenHash IN :tokenHashes AND rt.revoked = false")
+    int revokeTokens(@Param("tokenHashes") Collection<byte[]> tokenHashes, @Param("revokedAt") LocalDateTime revokedAt);
 
     @Modifying
     @Query("DELETE FROM RefreshToken rt WHERE rt.expiryDate < :date")
@@ -0,0 +1,18 @@
+package com.imran.authservice.repository;
+
+import com.imran.authservice.model.User;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface UserNaturalIdRepository {
+
+    // Resolved through the natural-id cache, so repeat logins skip the SELECT
+    Optional<User> findByEmail(String email);
+
+    // Reads the row and re-caches it: password, lockout and status must not come from a stale L2 entry
+    Optional<User> findByEmailForLogin(String email);
+
+    Optional<User> findByIdForLogin(UUID id);
+
+}
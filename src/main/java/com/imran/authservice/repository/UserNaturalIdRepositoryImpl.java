@@ -0,0 +1,50 @@
+package com.imran.authservice.repository;
+
+import com.imran.authservice.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+public class UserNaturalIdRepositoryImpl implements UserNaturalIdRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findByEmail(String email) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .loadOptional(User.normalizeEmail(email));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findByEmailForLogin(String email) {
+        return refreshing(session -> session.bySimpleNaturalId(User.class).loadOptional(User.normalizeEmail(email)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findByIdForLogin(UUID id) {
+        return refreshing(session -> Optional.ofNullable(session.find(User.class, id)));
+    }
+
+    private Optional<User> refreshing(Function<Session, Optional<User>> load) {
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode cacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.REFRESH);
+        try {
+            return load.apply(session);
+        } finally {
+            session.setCacheMode(cacheMode);
+        }
+    }
+
+}
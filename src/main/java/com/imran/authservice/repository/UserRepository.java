@@ -1,31 +1,58 @@
 package com.imran.authservice.repository;
 
+import com.imran.authservice.dto.UserDto;
+import com.imran.authservice.dto.UserSummaryDto;
 import com.imran.authservice.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, UUID> {
-    Optional<User> findByEmail(String email);
-    Optional<User> findByUsername(String username);
-    Optional<User> findByEmailVerificationToken(String token);
+public interface UserRepository extends JpaRepository<User, UUID>, UserNaturalIdRepository {
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = User.USERNAME_QUERY_CACHE_REGION)
+    })
+    @Query("SELECT u FROM User u WHERE lower(u.username) = lower(:username)")
+    Optional<User> findByUsername(@Param("username") String username);
+
+    // Profile columns only: no password hash, MFA secret or tokens leave the database
+    @Query("SELECT new com.imran.authservice.dto.UserDto(u.id, u.email, u.username, u.firstName, u.lastName, " +
+            "u.status, u.role, u.lastLogin, u.emailVerified, u.mfaEnabled, u.createdAt, u.updatedAt) " +
+            "FROM User u WHERE u.id = :id")
+    Optional<UserDto> findDtoById(@Param("id") UUID id);
+
+    // Batch lookups for downstream services; deleted users resolve as unknown
+    @Query("SELECT new com.imran.authservice.dto.UserSummaryDto(u.id, u.email, u.username, u.firstName, u.lastName) " +
+            "FROM User u WHERE u.id IN :ids AND u.status <> com.imran.authservice.enums.UserStatus.DELETED")
+    List<UserSummaryDto> findSummariesByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT new com.imran.authservice.dto.UserSummaryDto(u.id, u.email, u.username, u.firstName, u.lastName) " +
+            "FROM User u WHERE u.email IN :emails AND u.status <> com.imran.authservice.enums.UserStatus.DELETED")
+    List<UserSummaryDto> findSummariesByEmailIn(@Param("emails") Collection<String> emails);
+
+    // Callers pass User.normalizeEmail(...), the column is read through lower(email)
     boolean existsByEmail(String email);
-    boolean existsByUsername(String username);
+
+    @Query("SELECT count(u) > 0 FROM User u WHERE lower(u.username) = lower(:username)")
+    boolean existsByUsername(@Param("username") String username);
 
     @Modifying
-    @Query("UPDATE User u SET u.failedLoginAttempts = :attempts, u.lockedUntil = :lockedUntil WHERE u.email = :email")
+    @Query("UPDATE User u SET u.failedLoginAttempts = :attempts, u.lockedUntil = :lockedUntil WHERE u.email = lower(:email)")
     void updateFailedLoginAttempts(@Param("email")  String email,
                                    @Param("attempts") Integer attempts,
                                    @Param("lockedUntil") LocalDateTime lockedUntil);
 
-    @Modifying
-    @Query("UPDATE User u SET u.lastLogin = :lastLogin, u.failedLoginAttempts = 0, u.lockedUntil = null WHERE u.id = :userId")
-    void updateLastLogin(@Param("userId") UUID userId, @Param("lastLogin") LocalDateTime lastLogin);
 }
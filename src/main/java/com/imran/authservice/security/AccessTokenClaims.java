@@ -0,0 +1,42 @@
+package com.imran.authservice.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+import java.util.UUID;
+
+// Verified claims of an access token, timestamps in epoch seconds as on the wire unless named millis
+@Getter
+@AllArgsConstructor
+public class AccessTokenClaims {
+
+    private final String subject;
+    private final String email;
+    private final String username;
+    private final String roles;
+    private final String issuer;
+    private final Long issuedAt;
+    private final Long expiresAt;
+    // Id of the refresh-token session the token was issued for, null for tokens issued without one
+    private final String sessionId;
+    // iat_ms: user-wide revocations cut off at a millisecond, not at a whole second
+    private final Long issuedAtMillis;
+
+    public UUID getUserId() {
+        return UUID.fromString(subject);
+    }
+
+    // Tokens issued without iat_ms count as issued at the last millisecond of their iat second
+    public Long getIssuedAtMillis() {
+        if (issuedAtMillis != null) {
+            return issuedAtMillis;
+        }
+        return issuedAt == null ? null : issuedAt * 1000 + 999;
+    }
+
+    public Date getExpiration() {
+        return new Date(expiresAt * 1000);
+    }
+
+}
@@ -0,0 +1,611 @@
+package com.imran.authservice.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Specialised HS256 codec for our fixed access-token shape
+ * (sub, sid, email, username, roles, iss, iat, iat_ms, exp).
+ * <p>
+ * Produces exactly the bytes jjwt would for the same claims, but writes JSON and
+ * Base64URL straight into per-thread buffers and reuses a per-thread Mac.
+ * {@link #decode} only accepts tokens it fully understands; anything else returns
+ * null so the caller can fall back to the generic jjwt parser.
+ */
+public class AccessTokenCodec {
+
+    // base64url('{"alg":"HS256"}'), the only header jjwt writes for our tokens
+    private static final byte[] HEADER = "eyJhbGciOiJIUzI1NiJ9".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_BYTES = 32;
+    private static final int SIGNATURE_CHARS = 43;
+
+    private static final byte[] BASE64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final int[] BASE64URL_VALUES = new int[128];
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ESCAPE_HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        java.util.Arrays.fill(BASE64URL_VALUES, -1);
+        for (int i = 0; i < BASE64URL.length; i++) {
+            BASE64URL_VALUES[BASE64URL[i]] = i;
+        }
+    }
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    public AccessTokenCodec(byte[] secret) {
+        this.key = new SecretKeySpec(secret, MAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        // Fail fast on a bad key instead of on the first request
+        newMac();
+    }
+
+    // jjwt accepts any trailing bits in the signature, callers check this before falling back to it
+    public static boolean hasCanonicalSignature(String token) {
+        int dot = token.lastIndexOf('.');
+        if (token.length() - dot - 1 != SIGNATURE_CHARS) {
+            return false;
+        }
+        char last = token.charAt(token.length() - 1);
+        return last < 128 && BASE64URL_VALUES[last] >= 0 && (BASE64URL_VALUES[last] & 0x3) == 0;
+    }
+
+    public String encode(UUID subject,
+                         UUID sessionId,
+                         String email,
+                         String username,
+                         Collection<? extends GrantedAuthority> authorities,
+                         String issuer,
+                         long issuedAtMillis,
+                         long expiresAtSeconds) {
+        Buffers buf = buffers.get();
+
+        // Payload JSON, field order matches the jjwt builder calls in JwtTokenProvider
+        buf.jsonLength = 0;
+        buf.appendJson('{');
+        boolean first = true;
+        if (subject != null) {
+            buf.appendAscii("\"sub\":\"");
+            buf.appendUuid(subject);
+            buf.appendJson('"');
+            first = false;
+        }
+        if (sessionId != null) {
+            buf.appendAscii(first ? "\"sid\":\"" : ",\"sid\":\"");
+            buf.appendUuid(sessionId);
+            buf.appendJson('"');
+            first = false;
+        }
+        first = appendStringClaim(buf, "email", email, first);
+        first = appendStringClaim(buf, "username", username, first);
+
+        if (authorities != null) {
+            buf.appendAscii(first ? "\"roles\":\"" : ",\"roles\":\"");
+            boolean firstRole = true;
+            for (GrantedAuthority authority : authorities) {
+                if (!firstRole) {
+                    buf.appendJson(',');
+                }
+                buf.appendEscaped(authority.getAuthority());
+                firstRole = false;
+            }
+            buf.appendJson('"');
+            first = false;
+        }
+
+        first = appendStringClaim(buf, "iss", issuer, first);
+        first = appendNumberClaim(buf, "iat", issuedAtMillis / 1000, first);
+        first = appendNumberClaim(buf, "iat_ms", issuedAtMillis, first);
+        appendNumberClaim(buf, "exp", expiresAtSeconds, first);
+        buf.appendJson('}');
+
+        // header.payload.signature
+        int payloadChars = (buf.jsonLength * 4 + 2) / 3;
+        byte[] out = buf.out(HEADER.length + 1 + payloadChars + 1 + SIGNATURE_CHARS);
+        System.arraycopy(HEADER, 0, out, 0, HEADER.length);
+        int pos = HEADER.length;
+        out[pos++] = '.';
+        pos = encodeBase64Url(buf.json, buf.jsonLength, out, pos);
+
+        Mac mac = macs.get();
+        mac.update(out, 0, pos);
+        byte[] signature = buf.signature;
+        try {
+            mac.doFinal(signature, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign token", e);
+        }
+
+        out[pos++] = '.';
+        pos = encodeBase64Url(signature, SIGNATURE_BYTES, out, pos);
+
+        return new String(out, 0, pos, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Verifies the signature and expiry and reads the claims.
+     * Returns null for anything the fast path does not handle: foreign headers,
+     * unexpected JSON, bad signatures or expired tokens.
+     */
+    public AccessTokenClaims decode(String token, long nowMillis) {
+        if (token == null) {
+            return null;
+        }
+
+        int length = token.length();
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (firstDot != HEADER.length || secondDot < 0 || length - secondDot - 1 != SIGNATURE_CHARS) {
+            return null;
+        }
+
+        Buffers buf = buffers.get();
+        byte[] signed = buf.out(secondDot);
+        for (int i = 0; i < secondDot; i++) {
+            char c = token.charAt(i);
+            if (c > 0x7F) {
+                return null;
+            }
+            signed[i] = (byte) c;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if (signed[i] != HEADER[i]) {
+                return null;
+            }
+        }
+
+        byte[] expected = buf.signature;
+        byte[] actual = buf.actualSignature;
+        if (decodeBase64Url(token, secondDot + 1, length, actual, 0) != SIGNATURE_BYTES) {
+            return null;
+        }
+
+        Mac mac = macs.get();
+        mac.update(signed, 0, secondDot);
+        try {
+            mac.doFinal(expected, 0);
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return null;
+        }
+
+        int payloadChars = secondDot - firstDot - 1;
+        byte[] json = buf.json(payloadChars * 3 / 4 + 1);
+        int jsonLength = decodeBase64Url(token, firstDot + 1, secondDot, json, 0);
+        if (jsonLength < 0) {
+            return null;
+        }
+
+        AccessTokenClaims claims = new ClaimReader(json, jsonLength).read();
+        if (claims == null || claims.getSubject() == null || claims.getExpiresAt() == null) {
+            return null;
+        }
+
+        // jjwt rejects once now is past exp, with no clock skew
+        if (nowMillis > claims.getExpiresAt() * 1000) {
+            return null;
+        }
+        return claims;
+    }
+
+    private static boolean appendStringClaim(Buffers buf, String name, String value, boolean first) {
+        if (value == null) {
+            return first;
+        }
+        if (!first) {
+            buf.appendJson(',');
+        }
+        buf.appendJson('"');
+        buf.appendAscii(name);
+        buf.appendAscii("\":\"");
+        buf.appendEscaped(value);
+        buf.appendJson('"');
+        return false;
+    }
+
+    private static boolean appendNumberClaim(Buffers buf, String name, long value, boolean first) {
+        if (!first) {
+            buf.appendJson(',');
+        }
+        buf.appendJson('"');
+        buf.appendAscii(name);
+        buf.appendAscii("\":");
+        buf.appendLong(value);
+        return false;
+    }
+
+    private static int encodeBase64Url(byte[] src, int length, byte[] out, int pos) {
+        int i = 0;
+        for (; i + 2 < length; i += 3) {
+            int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            out[pos++] = BASE64URL[bits >>> 18];
+            out[pos++] = BASE64URL[(bits >>> 12) & 0x3F];
+            out[pos++] = BASE64URL[(bits >>> 6) & 0x3F];
+            out[pos++] = BASE64URL[bits & 0x3F];
+        }
+        int remaining = length - i;
+        if (remaining == 1) {
+            int bits = (src[i] & 0xFF) << 16;
+            out[pos++] = BASE64URL[bits >>> 18];
+            out[pos++] = BASE64URL[(bits >>> 12) & 0x3F];
+        } else if (remaining == 2) {
+            int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8;
+            out[pos++] = BASE64URL[bits >>> 18];
+            out[pos++] = BASE64URL[(bits >>> 12) & 0x3F];
+            out[pos++] = BASE64URL[(bits >>> 6) & 0x3F];
+        }
+        return pos;
+    }
+
+    // Returns the number of bytes written, or -1 on invalid input
+    private static int decodeBase64Url(String src, int from, int to, byte[] out, int pos) {
+        int start = pos;
+        int bits = 0;
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            char c = src.charAt(i);
+            int value = c < 128 ? BASE64URL_VALUES[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            bits = bits << 6 | value;
+            if (++count == 4) {
+                out[pos++] = (byte) (bits >> 16);
+                out[pos++] = (byte) (bits >> 8);
+                out[pos++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        // Unused trailing bits must be zero, otherwise several strings decode to the same bytes
+        if (count == 1) {
+            return -1;
+        } else if (count == 2) {
+            if ((bits & 0xF) != 0) {
+                return -1;
+            }
+            out[pos++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            if ((bits & 0x3) != 0) {
+                return -1;
+            }
+            out[pos++] = (byte) (bits >> 10);
+            out[pos++] = (byte) (bits >> 2);
+        }
+        return pos - start;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialise " + MAC_ALGORITHM, e);
+        }
+    }
+
+    // Per-thread scratch space, grown on demand and never shrunk
+    private static final class Buffers {
+
+        private byte[] json = new byte[512];
+        private int jsonLength;
+        private byte[] out = new byte[1024];
+        private final byte[] signature = new byte[SIGNATURE_BYTES];
+        private final byte[] actualSignature = new byte[SIGNATURE_BYTES + 2];
+
+        byte[] out(int capacity) {
+            if (out.length < capacity) {
+                out = new byte[Math.max(capacity, out.length * 2)];
+            }
+            return out;
+        }
+
+        byte[] json(int capacity) {
+            if (json.length < capacity) {
+                json = new byte[Math.max(capacity, json.length * 2)];
+            }
+            return json;
+        }
+
+        void appendJson(int b) {
+            if (jsonLength == json.length) {
+                json = java.util.Arrays.copyOf(json, json.length * 2);
+            }
+            json[jsonLength++] = (byte) b;
+        }
+
+        void appendAscii(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                appendJson(value.charAt(i));
+            }
+        }
+
+        void appendUuid(UUID uuid) {
+            appendHex(uuid.getMostSignificantBits() >>> 32, 8);
+            appendJson('-');
+            appendHex(uuid.getMostSignificantBits() >>> 16, 4);
+            appendJson('-');
+            appendHex(uuid.getMostSignificantBits(), 4);
+            appendJson('-');
+            appendHex(uuid.getLeastSignificantBits() >>> 48, 4);
+            appendJson('-');
+            appendHex(uuid.getLeastSignificantBits(), 12);
+        }
+
+        private void appendHex(long value, int digits) {
+            for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+                appendJson(HEX[(int) (value >>> shift) & 0xF]);
+            }
+        }
+
+        void appendLong(long value) {
+            if (value < 0) {
+                appendJson('-');
+                if (value == Long.MIN_VALUE) {
+                    appendAscii("9223372036854775808");
+                    return;
+                }
+                value = -value;
+            }
+            long divisor = 1;
+            while (value / divisor >= 10) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                appendJson('0' + (int) (value / divisor % 10));
+            }
+        }
+
+        // Same escaping and UTF-8 output as Jackson's default generator
+        void appendEscaped(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    if (c == '"' || c == '\\') {
+                        appendJson('\\');
+                        appendJson(c);
+                    } else if (c >= 0x20) {
+                        appendJson(c);
+                    } else {
+                        appendControl(c);
+                    }
+                } else if (c < 0x800) {
+                    appendJson(0xC0 | (c >> 6));
+                    appendJson(0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    appendJson(0xF0 | (codePoint >> 18));
+                    appendJson(0x80 | ((codePoint >> 12) & 0x3F));
+                    appendJson(0x80 | ((codePoint >> 6) & 0x3F));
+                    appendJson(0x80 | (codePoint & 0x3F));
+                } else {
+                    appendJson(0xE0 | (c >> 12));
+                    appendJson(0x80 | ((c >> 6) & 0x3F));
+                    appendJson(0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private void appendControl(char c) {
+            appendJson('\\');
+            switch (c) {
+                case '\b' -> appendJson('b');
+                case '\t' -> appendJson('t');
+                case '\n' -> appendJson('n');
+                case '\f' -> appendJson('f');
+                case '\r' -> appendJson('r');
+                default -> {
+                    appendAscii("u00");
+                    appendJson(ESCAPE_HEX[c >> 4]);
+                    appendJson(ESCAPE_HEX[c & 0xF]);
+                }
+            }
+        }
+    }
+
+    // Reads a flat JSON object of string and integer members, null on anything else
+    private static final class ClaimReader {
+
+        private final byte[] json;
+        private final int length;
+        private int pos;
+
+        private String subject;
+        private String email;
+        private String username;
+        private String roles;
+        private String issuer;
+        private Long issuedAt;
+        private Long expiresAt;
+        private String sessionId;
+        private Long issuedAtMillis;
+
+        ClaimReader(byte[] json, int length) {
+            this.json = json;
+            this.length = length;
+        }
+
+        AccessTokenClaims read() {
+            if (!consume('{')) {
+                return null;
+            }
+            if (!consume('}')) {
+                do {
+                    String name = readString();
+                    if (name == null || !consume(':')) {
+                        return null;
+                    }
+                    if (!readValue(name)) {
+                        return null;
+                    }
+                } while (consume(','));
+
+                if (!consume('}')) {
+                    return null;
+                }
+            }
+            skipWhitespace();
+            if (pos != length) {
+                return null;
+            }
+            return new AccessTokenClaims(subject, email, username, roles, issuer, issuedAt, expiresAt, sessionId, issuedAtMillis);
+        }
+
+        private boolean readValue(String name) {
+            skipWhitespace();
+            if (pos >= length) {
+                return false;
+            }
+            if (json[pos] == '"') {
+                String value = readString();
+                if (value == null) {
+                    return false;
+                }
+                switch (name) {
+                    case "sub" -> subject = value;
+                    case "sid" -> sessionId = value;
+                    case "email" -> email = value;
+                    case "username" -> username = value;
+                    case "roles" -> roles = value;
+                    case "iss" -> issuer = value;
+                    case "iat", "iat_ms", "exp" -> {
+                        return false;
+                    }
+                    default -> {
+                        // Unknown string claims are ignored
+                    }
+                }
+                return true;
+            }
+
+            Long value = readLong();
+            if (value == null) {
+                return false;
+            }
+            switch (name) {
+                case "iat" -> issuedAt = value;
+                case "iat_ms" -> issuedAtMillis = value;
+                case "exp" -> expiresAt = value;
+                case "sub", "sid", "email", "username", "roles", "iss" -> {
+                    return false;
+                }
+                default -> {
+                    // Unknown numeric claims are ignored
+                }
+            }
+            return true;
+        }
+
+        private String readString() {
+            if (!consume('"')) {
+                return null;
+            }
+            int start = pos;
+            while (pos < length && json[pos] != '"' && json[pos] != '\\') {
+                pos++;
+            }
+            if (pos < length && json[pos] == '"') {
+                return new String(json, start, pos++ - start, StandardCharsets.UTF_8);
+            }
+
+            // Slow path for escaped strings
+            java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+            bytes.write(json, start, pos - start);
+            while (pos < length) {
+                byte b = json[pos++];
+                if (b == '"') {
+                    return bytes.toString(StandardCharsets.UTF_8);
+                }
+                if (b != '\\') {
+                    bytes.write(b);
+                    continue;
+                }
+                if (pos >= length) {
+                    return null;
+                }
+                byte escaped = json[pos++];
+                switch (escaped) {
+                    case '"', '\\', '/' -> bytes.write(escaped);
+                    case 'b' -> bytes.write('\b');
+                    case 'f' -> bytes.write('\f');
+                    case 'n' -> bytes.write('\n');
+                    case 'r' -> bytes.write('\r');
+                    case 't' -> bytes.write('\t');
+                    case 'u' -> {
+                        if (pos + 4 > length) {
+                            return null;
+                        }
+                        int c;
+                        try {
+                            c = Integer.parseInt(new String(json, pos, 4, StandardCharsets.US_ASCII), 16);
+                        } catch (NumberFormatException e) {
+                            return null;
+                        }
+                        pos += 4;
+                        byte[] utf8 = String.valueOf((char) c).getBytes(StandardCharsets.UTF_8);
+                        bytes.write(utf8, 0, utf8.length);
+                    }
+                    default -> {
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private Long readLong() {
+            boolean negative = pos < length && json[pos] == '-';
+            if (negative) {
+                pos++;
+            }
+            int start = pos;
+            long value = 0;
+            while (pos < length && json[pos] >= '0' && json[pos] <= '9') {
+                if (pos - start >= 18) {
+                    return null;
+                }
+                value = value * 10 + (json[pos++] - '0');
+            }
+            if (pos == start) {
+                return null;
+            }
+            // Fractions and exponents are left to jjwt
+            if (pos < length && (json[pos] == '.' || json[pos] == 'e' || json[pos] == 'E')) {
+                return null;
+            }
+            return negative ? -value : value;
+        }
+
+        private boolean consume(char expected) {
+            skipWhitespace();
+            if (pos < length && json[pos] == expected) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (pos < length && (json[pos] == ' ' || json[pos] == '\t' || json[pos] == '\n' || json[pos] == '\r')) {
+                pos++;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.imran.authservice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.imran.authservice.model.User;
+import com.imran.authservice.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Sliding renewal: once a verified access token is past after-fraction of its
+ * lifetime, plus a per-token jitter of up to jitter-fraction, the filter hands the
+ * client a fresh one in X-Auth-Token instead of waiting for a refresh round trip.
+ * <p>
+ * The jitter is derived from the token, so tokens issued in the same second still
+ * renew at different times, while one token keeps a stable threshold. A token is
+ * renewed at most once per min-interval, however many requests carry it.
+ * <p>
+ * Only tokens bound to a refresh-token session (sid) are renewed, and only while
+ * that session is neither revoked nor expired and the user is active and unlocked,
+ * as read from the database at renewal time. Renewal therefore never outlives
+ * logout, session revocation or the refresh token's own expiry.
+ */
+@Component
+public class AccessTokenRenewer {
+
+    public static final String HEADER = "X-Auth-Token";
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final boolean enabled;
+    private final double afterFraction;
+    private final double jitterFraction;
+    private final Cache<String, Boolean> recentlyRenewed;
+    private final Counter renewals;
+
+    public AccessTokenRenewer(JwtTokenProvider jwtTokenProvider,
+                              RefreshTokenRepository refreshTokenRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${jwt.renewal.enabled:false}") boolean enabled,
+                              @Value("${jwt.renewal.after-fraction:0.5}") double afterFraction,
+                              @Value("${jwt.renewal.jitter-fraction:0.2}") double jitterFraction,
+                              @Value("${jwt.renewal.min-interval:60s}") Duration minInterval,
+                              @Value("${security.token-cache.maximum-size:100000}") long maximumSize) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.enabled = enabled;
+        this.afterFraction = afterFraction;
+        this.jitterFraction = jitterFraction;
+        this.recentlyRenewed = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(minInterval)
+                .build();
+        this.renewals = Counter.builder("security.token.renewals")
+                .description("Access tokens renewed by the authentication filter")
+                .register(meterRegistry);
+    }
+
+    // A new access token for the same session, or null when this token is not due or its session ended
+    public String renewIfDue(String token, AccessTokenClaims claims) {
+        if (!enabled || claims.getIssuedAt() == null || claims.getExpiresAt() == null || claims.getSessionId() == null) {
+            return null;
+        }
+
+        long nowSeconds = System.currentTimeMillis() / 1000;
+        long lifetime = claims.getExpiresAt() - claims.getIssuedAt();
+        if (nowSeconds < claims.getIssuedAt() + (long) (lifetime * (afterFraction + jitterOf(token)))) {
+            return null;
+        }
+
+        String signature = token.substring(token.lastIndexOf('.') + 1);
+        if (recentlyRenewed.asMap().putIfAbsent(signature, Boolean.TRUE) != null) {
+            return null;
+        }
+
+        UUID sessionId;
+        try {
+            sessionId = UUID.fromString(claims.getSessionId());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        Optional<User> user = refreshTokenRepository.findActiveSessionUser(sessionId, claims.getUserId(), LocalDateTime.now());
+        if (user.isEmpty()) {
+            return null;
+        }
+
+        renewals.increment();
+        return jwtTokenProvider.generateAccessToken(
+                new UsernamePasswordAuthenticationToken(user.get(), null, user.get().getAuthorities()), sessionId);
+    }
+
+    private double jitterOf(String token) {
+        return (token.hashCode() & 0x7fffffff) / (double) Integer.MAX_VALUE * jitterFraction;
+    }
+
+}
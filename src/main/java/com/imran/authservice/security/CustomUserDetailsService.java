@@ -1,5 +1,6 @@
 package com.imran.authservice.security;
 
+import com.imran.authservice.config.ReplicaLagTracker;
 import com.imran.authservice.model.User;
 import com.imran.authservice.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -18,14 +19,15 @@ import java.util.UUID;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final ReplicaLagTracker replicaLagTracker;
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         log.info("Loading user by username/email: {}", username);
 
         // Try email first
-        User user = userRepository.findByEmail(username)
+        User user = userRepository.findByEmailForLogin(username)
                 .orElseGet(() -> {
                     log.info("User not found by email, trying username: {}", username);
                     return userRepository.findByUsername(username)
@@ -41,9 +43,12 @@ public class CustomUserDetailsService implements UserDetailsService {
         return user;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public UserDetails loadUserById(String userId) throws UsernameNotFoundException {
-        return userRepository.findById(UUID.fromString(userId))
+        UUID id = UUID.fromString(userId);
+        replicaLagTracker.pinIfRecentlyWritten(id);
+
+        return userRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("Username not found with email: " + userId));
     }
 }
@@ -25,6 +25,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtTokenProvider jwtTokenProvider;
     private final CustomUserDetailsService customUserDetailsService;
     private final TokenBlacklistService tokenBlacklistService;
+    private final OpaqueTokenService opaqueTokenService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final AccessTokenRenewer accessTokenRenewer;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -33,37 +36,80 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt)) {
+            if (StringUtils.hasText(jwt) && OpaqueTokenService.isOpaqueToken(jwt)) {
+                // A single GET replaces both the signature check and the blacklist lookup
+                opaqueTokenService.resolve(jwt).ifPresent(session ->
+                        authenticate(customUserDetailsService.loadUserById(session.getUserId().toString()), request));
+            } else if (StringUtils.hasText(jwt)) {
+                authenticateJwt(jwt, request, response);
+            }
+        } catch (Exception e) {
+            log.error("Failed to set authentication in security context", e);
+        }
 
-                // Check if token blacklisted
-                if (tokenBlacklistService.isTokenBlacklisted(jwt)) {
-                    log.warn("Blacklisted token attempted to access: {} ", request.getRequestURI());
+        filterChain.doFilter(request, response);
+    }
 
-                    filterChain.doFilter(request, response);
+    private void authenticateJwt(String jwt, HttpServletRequest request, HttpServletResponse response) {
+        VerifiedTokenCache.Entry cached = verifiedTokenCache.get(jwt);
+        if (cached != null) {
+            // A revocation happened somewhere since this entry was verified, re-check it once
+            long epoch = tokenBlacklistService.getRevocationEpoch();
+            if (cached.getRevocationEpoch() != epoch) {
+                if (tokenBlacklistService.isTokenBlacklisted(jwt, cached.getClaims())) {
+                    verifiedTokenCache.invalidate(jwt);
+                    log.warn("Blacklisted token attempted to access: {} ", request.getRequestURI());
                     return;
                 }
+                cached.setRevocationEpoch(epoch);
+            }
+
+            if (authenticate(customUserDetailsService.loadUserById(cached.getClaims().getSubject()), request)) {
+                renewIfDue(jwt, cached.getClaims(), response);
+            }
+            return;
+        }
 
-                if (jwtTokenProvider.validateToken(jwt)) {
-                    String userId = jwtTokenProvider.getUserIdFromToken(jwt).toString();
+        AccessTokenClaims claims = jwtTokenProvider.parseAccessToken(jwt);
+        if (claims == null) {
+            return;
+        }
 
-                    UserDetails userDetails = customUserDetailsService.loadUserById(userId);
+        // Read before the blacklist check so a concurrent revocation forces a re-check
+        long epoch = tokenBlacklistService.getRevocationEpoch();
 
-                    if (userDetails != null) {
-                        UsernamePasswordAuthenticationToken authentication =
-                                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        // Check if token blacklisted
+        if (tokenBlacklistService.isTokenBlacklisted(jwt, claims)) {
+            log.warn("Blacklisted token attempted to access: {} ", request.getRequestURI());
+            return;
+        }
 
-                        SecurityContextHolder.getContext().setAuthentication(authentication);
-                    }
+        if (claims.getExpiresAt() != null) {
+            verifiedTokenCache.put(jwt, claims, epoch);
+        }
+        if (authenticate(customUserDetailsService.loadUserById(claims.getSubject()), request)) {
+            renewIfDue(jwt, claims, response);
+        }
+    }
 
-                }
+    private void renewIfDue(String jwt, AccessTokenClaims claims, HttpServletResponse response) {
+        String renewed = accessTokenRenewer.renewIfDue(jwt, claims);
+        if (renewed != null) {
+            response.setHeader(AccessTokenRenewer.HEADER, renewed);
+        }
+    }
 
-            }
-        } catch (Exception e) {
-            log.error("Failed to set authentication in security context", e);
+    // Locked, disabled and deleted accounts are not authenticated, whatever their token says
+    private boolean authenticate(UserDetails userDetails, HttpServletRequest request) {
+        if (userDetails == null || !userDetails.isEnabled() || !userDetails.isAccountNonLocked()) {
+            return false;
         }
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-        filterChain.doFilter(request, response);
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        return true;
     }
 
     private String getJwtFromRequest(HttpServletRequest request) {
@@ -8,15 +8,11 @@ import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -25,48 +21,43 @@ public class JwtTokenProvider {
 
     private final JwtConfig jwtConfig;
     private Key key;
+    private AccessTokenCodec accessTokenCodec;
 
     @PostConstruct
     public void init() {
         this.key = Keys.hmacShaKeyFor(jwtConfig.getSecret().getBytes());
+        this.accessTokenCodec = new AccessTokenCodec(key.getEncoded());
     }
 
     public String generateAccessToken(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
-
-        Instant now =  Instant.now();
-        Instant expiry = now.plus(jwtConfig.getAccessTokenExpiration(), ChronoUnit.MILLIS);
-
-        String authorities = authentication.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.joining(","));
-
-        return Jwts.builder()
-                .setSubject(user.getId().toString())
-                .claim("email", user.getEmail())
-                .claim("username", user.getUsername())
-                .claim("roles", authorities)
-                .setIssuer(jwtConfig.getIssuer())
-                .setIssuedAt(Date.from(now))
-                .setExpiration(Date.from(expiry))
-                .signWith(key, SignatureAlgorithm.HS256)
-                .compact();
+        return generateAccessToken(authentication, null);
     }
 
-    public String generateRefreshToken(UUID userId) {
-        Instant now = Instant.now();
-        Instant expiry = now.plus(jwtConfig.getRefreshTokenExpiration(), ChronoUnit.MILLIS);
-
-        return Jwts.builder()
-                .setSubject(userId.toString())
-                .setIssuer(jwtConfig.getIssuer())
-                .setIssuedAt(Date.from(now))
-                .setExpiration(Date.from(expiry))
-                .signWith(key, SignatureAlgorithm.HS256)
-                .compact();
+    // Tokens bound to a refresh-token session can be renewed while that session is active
+    public String generateAccessToken(Authentication authentication, UUID sessionId) {
+        User user = (User) authentication.getPrincipal();
+
+        long now = System.currentTimeMillis();
+        long expiry = now + jwtConfig.getAccessTokenExpiration();
+
+        // Byte-identical to the jjwt builder output, without the generic serialization overhead
+        return accessTokenCodec.encode(
+                user.getId(),
+                sessionId,
+                user.getEmail(),
+                user.getUsername(),
+                authentication.getAuthorities(),
+                jwtConfig.getIssuer(),
+                now,
+                expiry / 1000);
     }
 
     public UUID getUserIdFromToken(String token) {
+        AccessTokenClaims accessTokenClaims = accessTokenCodec.decode(token, System.currentTimeMillis());
+        if (accessTokenClaims != null) {
+            return accessTokenClaims.getUserId();
+        }
+
         Claims claims = Jwts.parser()
                 .setSigningKey(key)
                 .build()
@@ -87,23 +78,52 @@ public class JwtTokenProvider {
     }
 
     public boolean validateToken(String token) {
+        return parseAccessToken(token) != null;
+    }
+
+    // Verified claims, or null when the token is invalid or expired
+    public AccessTokenClaims parseAccessToken(String token) {
+        AccessTokenClaims accessTokenClaims = accessTokenCodec.decode(token, System.currentTimeMillis());
+        if (accessTokenClaims != null) {
+            return accessTokenClaims;
+        }
+
+        if (token == null || !AccessTokenCodec.hasCanonicalSignature(token)) {
+            return null;
+        }
+
+        // Slow path also produces the specific failure reason
         try {
-            Jwts.parser().setSigningKey(key).build().parseClaimsJws(token);
-            return true;
-        } catch (MalformedJwtException e) {
-            log.error("Invalid JWT token");
-        }  catch (ExpiredJwtException e) {
-            log.error("Expired JWT token");
-        } catch (UnsupportedJwtException e) {
-            log.error("Unsupported JWT token");
+            Claims claims = Jwts.parser().setSigningKey(key).build().parseClaimsJws(token).getBody();
+            return new AccessTokenClaims(
+                    claims.getSubject(),
+                    claims.get("email", String.class),
+                    claims.get("username", String.class),
+                    claims.get("roles", String.class),
+                    claims.getIssuer(),
+                    claims.getIssuedAt() == null ? null : claims.getIssuedAt().getTime() / 1000,
+                    claims.getExpiration() == null ? null : claims.getExpiration().getTime() / 1000,
+                    claims.get("sid", String.class),
+                    claims.get("iat_ms", Long.class));
+        } catch (ExpiredJwtException e) {
+            // Clients routinely send tokens that just expired
+            log.debug("Expired JWT token");
         } catch (IllegalArgumentException e) {
-            log.error("JWT claims string is empty");
+            log.warn("JWT claims string is empty");
+        } catch (JwtException e) {
+            // Malformed, unsupported, bad signature or any other parser failure: the token is simply invalid
+            log.warn("Invalid JWT token ({}): {}", e.getClass().getSimpleName(), e.getMessage());
         }
 
-        return false;
+        return null;
     }
 
     public Date getExpirationDateFromToken(String token) {
+        AccessTokenClaims claims = accessTokenCodec.decode(token, System.currentTimeMillis());
+        if (claims != null) {
+            return claims.getExpiration();
+        }
+
         return Jwts.parser()
                 .setSigningKey(key)
                 .build()
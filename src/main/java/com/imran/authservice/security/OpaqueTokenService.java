@@ -0,0 +1,133 @@
+package com.imran.authservice.security;
+
+import com.imran.authservice.config.JwtConfig;
+import com.imran.authservice.enums.Role;
+import com.imran.authservice.model.User;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Reference tokens: the client only holds a random handle, the session lives in Redis.
+ * Validation is a single GET and revocation a single DEL. Each user's handles are
+ * also kept in a set, so a password reset can end all of their sessions.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OpaqueTokenService {
+
+    private static final String SESSION_PREFIX = "session:opaque:";
+    private static final String USER_SESSIONS_PREFIX = "session:opaque:user:";
+    private static final int HANDLE_BYTES = 24;
+
+    // version(1) + user id(16) + issued at(8) + expires at(8), then the role name in ASCII
+    private static final int HEADER_BYTES = 33;
+    private static final byte RECORD_VERSION = 2;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final RedisTemplate<String, byte[]> binaryRedisTemplate;
+    private final JwtConfig jwtConfig;
+
+    // JWTs always carry two dots, handles are plain base64url
+    public static boolean isOpaqueToken(String token) {
+        return token != null && token.indexOf('.') < 0;
+    }
+
+    public String issueToken(User user) {
+        byte[] handleBytes = new byte[HANDLE_BYTES];
+        RANDOM.nextBytes(handleBytes);
+        String handle = ENCODER.encodeToString(handleBytes);
+
+        long now = System.currentTimeMillis();
+        long ttl = jwtConfig.getAccessTokenExpiration();
+
+        byte[] role = user.getRole().name().getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + role.length)
+                .put(RECORD_VERSION)
+                .putLong(user.getId().getMostSignificantBits())
+                .putLong(user.getId().getLeastSignificantBits())
+                .putLong(now)
+                .putLong(now + ttl)
+                .put(role);
+
+        binaryRedisTemplate.opsForValue().set(SESSION_PREFIX + handle, record.array(), Duration.ofMillis(ttl));
+        // The set lives as long as the newest session, revoked handles in it are harmless
+        String userSessions = USER_SESSIONS_PREFIX + user.getId();
+        binaryRedisTemplate.opsForSet().add(userSessions, handle.getBytes(StandardCharsets.US_ASCII));
+        binaryRedisTemplate.expire(userSessions, Duration.ofMillis(ttl));
+        return handle;
+    }
+
+    public Optional<OpaqueSession> resolve(String handle) {
+        byte[] record = binaryRedisTemplate.opsForValue().get(SESSION_PREFIX + handle);
+        OpaqueSession session = record == null ? null : decode(record);
+        if (session == null) {
+            return Optional.empty();
+        }
+
+        // Redis TTL already enforces this, guards against clock drift between nodes
+        if (session.getExpiresAt() <= System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(session);
+    }
+
+    public void revokeToken(String handle) {
+        binaryRedisTemplate.delete(SESSION_PREFIX + handle);
+        log.debug("Opaque token revoked");
+    }
+
+    public void revokeAllForUser(UUID userId) {
+        String userSessions = USER_SESSIONS_PREFIX + userId;
+        Set<byte[]> handles = binaryRedisTemplate.opsForSet().members(userSessions);
+        List<String> keys = new ArrayList<>();
+        keys.add(userSessions);
+        if (handles != null) {
+            handles.forEach(handle -> keys.add(SESSION_PREFIX + new String(handle, StandardCharsets.US_ASCII)));
+        }
+        binaryRedisTemplate.delete(keys);
+        log.debug("Revoked {} opaque tokens of user {}", keys.size() - 1, userId);
+    }
+
+    private static OpaqueSession decode(byte[] record) {
+        if (record.length <= HEADER_BYTES || record[0] != RECORD_VERSION) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(record, 1, HEADER_BYTES - 1);
+        UUID userId = new UUID(buffer.getLong(), buffer.getLong());
+        long issuedAt = buffer.getLong();
+        long expiresAt = buffer.getLong();
+        try {
+            Role role = Role.valueOf(new String(record, HEADER_BYTES, record.length - HEADER_BYTES, StandardCharsets.US_ASCII));
+            return new OpaqueSession(userId, issuedAt, expiresAt, role);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Value
+    public static class OpaqueSession {
+        UUID userId;
+        long issuedAt;
+        long expiresAt;
+        Role role;
+    }
+
+}
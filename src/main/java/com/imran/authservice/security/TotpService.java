@@ -0,0 +1,187 @@
+package com.imran.authservice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * RFC 6238 time-based one-time passwords (SHA-1, 6 digits, 30 second steps),
+ * compatible with the common authenticator apps.
+ * <p>
+ * A verification costs at most 2 * window + 1 HMACs on a per-thread Mac and one
+ * Redis SET NX. The SET NX records the matched step per user, so an observed code
+ * cannot be replayed while it is still inside the acceptance window.
+ */
+@Component
+@RequiredArgsConstructor
+public class TotpService {
+
+    private static final String USED_CODE_PREFIX = "mfa:used:";
+    private static final String BASE32_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
+    private static final int SECRET_BYTES = 20;
+    private static final int DIGITS = 6;
+    private static final int MODULUS = 1_000_000;
+    private static final long STEP_SECONDS = 30;
+
+    // Mac instances are not thread-safe, and getInstance walks the provider list every time
+    private static final ThreadLocal<Mac> HMAC_SHA1 = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("HmacSHA1 not available", e);
+        }
+    });
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    // Decoded keys by base32 secret, so repeated verifications skip the decode
+    private final Cache<String, SecretKeySpec> keys = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+
+    @Value("${security.mfa.window:1}")
+    private int window;
+
+    @Value("${security.mfa.issuer:auth-service}")
+    private String issuer;
+
+    public String generateSecret() {
+        byte[] secret = new byte[SECRET_BYTES];
+        secureRandom.nextBytes(secret);
+        return base32Encode(secret);
+    }
+
+    public String otpAuthUri(String secret, String accountName) {
+        String label = URLEncoder.encode(issuer + ":" + accountName, StandardCharsets.UTF_8).replace("+", "%20");
+        return "otpauth://totp/" + label
+                + "?secret=" + secret
+                + "&issuer=" + URLEncoder.encode(issuer, StandardCharsets.UTF_8).replace("+", "%20")
+                + "&algorithm=SHA1&digits=" + DIGITS + "&period=" + STEP_SECONDS;
+    }
+
+    /**
+     * Returns true only for a correct code that has not been used before by this user.
+     */
+    public boolean verifyCode(UUID userId, String secret, String code) {
+        int candidate = parseCode(code);
+        if (candidate < 0 || secret == null) {
+            return false;
+        }
+
+        SecretKeySpec key = key(secret);
+        long currentStep = System.currentTimeMillis() / 1000 / STEP_SECONDS;
+
+        for (long step = currentStep - window; step <= currentStep + window; step++) {
+            if (generateCode(key, step) == candidate) {
+                Boolean firstUse = redisTemplate.opsForValue().setIfAbsent(
+                        USED_CODE_PREFIX + userId + ":" + step,
+                        1,
+                        Duration.ofSeconds(STEP_SECONDS * (2L * window + 1)));
+                return Boolean.TRUE.equals(firstUse);
+            }
+        }
+        return false;
+    }
+
+    // Decodes the key ahead of the user's first verification, used by the warm-up
+    public void primeKey(String secret) {
+        generateCode(key(secret), 0);
+    }
+
+    private SecretKeySpec key(String secret) {
+        return keys.get(secret, s -> new SecretKeySpec(base32Decode(s), "HmacSHA1"));
+    }
+
+    int generateCode(SecretKeySpec key, long step) {
+        Mac mac = HMAC_SHA1.get();
+        try {
+            mac.init(key);
+        } catch (InvalidKeyException e) {
+            throw new IllegalStateException("Invalid TOTP key", e);
+        }
+
+        byte[] counter = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            counter[i] = (byte) step;
+            step >>>= 8;
+        }
+        byte[] hash = mac.doFinal(counter);
+
+        // Dynamic truncation, RFC 4226 section 5.3
+        int offset = hash[hash.length - 1] & 0x0F;
+        int binary = ((hash[offset] & 0x7F) << 24)
+                | ((hash[offset + 1] & 0xFF) << 16)
+                | ((hash[offset + 2] & 0xFF) << 8)
+                | (hash[offset + 3] & 0xFF);
+        return binary % MODULUS;
+    }
+
+    private static int parseCode(String code) {
+        if (code == null || code.length() != DIGITS) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < DIGITS; i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    static String base32Encode(byte[] data) {
+        StringBuilder encoded = new StringBuilder((data.length * 8 + 4) / 5);
+        int buffer = 0;
+        int bits = 0;
+        for (byte b : data) {
+            buffer = (buffer << 8) | (b & 0xFF);
+            bits += 8;
+            while (bits >= 5) {
+                encoded.append(BASE32_ALPHABET.charAt((buffer >> (bits - 5)) & 0x1F));
+                bits -= 5;
+            }
+        }
+        if (bits > 0) {
+            encoded.append(BASE32_ALPHABET.charAt((buffer << (5 - bits)) & 0x1F));
+        }
+        return encoded.toString();
+    }
+
+    static byte[] base32Decode(String encoded) {
+        byte[] decoded = new byte[encoded.length() * 5 / 8];
+        int buffer = 0;
+        int bits = 0;
+        int index = 0;
+        for (int i = 0; i < encoded.length() && index < decoded.length; i++) {
+            int value = BASE32_ALPHABET.indexOf(Character.toUpperCase(encoded.charAt(i)));
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid base32 secret");
+            }
+            buffer = (buffer << 5) | value;
+            bits += 5;
+            if (bits >= 8) {
+                decoded[index++] = (byte) (buffer >> (bits - 8));
+                bits -= 8;
+            }
+        }
+        return decoded;
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.imran.authservice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Claims of access tokens that already passed signature, expiry and blacklist
+ * checks. Keyed by the token's HMAC segment, entries are evicted when the token
+ * expires or after max-ttl, whichever is first.
+ * <p>
+ * The principal is not cached: it is loaded per request, so a role change or a
+ * disabled account takes effect on the next request.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final Cache<String, Entry> cache;
+
+    public VerifiedTokenCache(@Value("${security.token-cache.maximum-size:100000}") long maximumSize,
+                              @Value("${security.token-cache.max-ttl:5m}") Duration maxTtl) {
+        long maxTtlNanos = maxTtl.toNanos();
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        long untilExpiry = (entry.getClaims().getExpiresAt() * 1000 - System.currentTimeMillis()) * 1_000_000;
+                        return Math.max(0, Math.min(untilExpiry, maxTtlNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    public Entry get(String token) {
+        Entry entry = cache.getIfPresent(keyOf(token));
+        // The signature alone identifies the token, comparing the full string rules out any collision
+        if (entry == null || !entry.getToken().equals(token)) {
+            return null;
+        }
+        return entry;
+    }
+
+    public void put(String token, AccessTokenClaims claims, long revocationEpoch) {
+        cache.put(keyOf(token), new Entry(token, claims, revocationEpoch));
+    }
+
+    public void invalidate(String token) {
+        cache.invalidate(keyOf(token));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static String keyOf(String token) {
+        return token.substring(token.lastIndexOf('.') + 1);
+    }
+
+    @Getter
+    public static class Entry {
+
+        private final String token;
+        private final AccessTokenClaims claims;
+        private volatile long revocationEpoch;
+
+        Entry(String token, AccessTokenClaims claims, long revocationEpoch) {
+            this.token = token;
+            this.claims = claims;
+            this.revocationEpoch = revocationEpoch;
+        }
+
+        public void setRevocationEpoch(long revocationEpoch) {
+            this.revocationEpoch = revocationEpoch;
+        }
+    }
+
+}
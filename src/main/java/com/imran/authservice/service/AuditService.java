@@ -0,0 +1,315 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.audit.AuditEvent;
+import com.imran.authservice.audit.AuditRingBuffer;
+import com.imran.authservice.enums.AuditEventType;
+import com.imran.authservice.enums.AuditOverflowPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Login audit trail that stays off the request path.
+ * <p>
+ * Request threads only build an event and offer it to a lock-free ring buffer. A
+ * single background writer drains the buffer and persists batches with COPY into
+ * the monthly partitions of login_audit. When the buffer is full, or a batch cannot
+ * be written, the overflow policy applies: DROP counts the event and discards it,
+ * SPILL appends it to a local CSV file that is replayed once the database accepts
+ * writes again.
+ * <p>
+ * The writer stops in a phase below the web server's graceful shutdown, so logins
+ * still draining when shutdown begins are written. An event recorded after the
+ * writer stopped is written on the caller's thread.
+ */
+@Service
+@Slf4j
+public class AuditService implements SmartLifecycle {
+
+    private static final String COPY_SQL =
+            "COPY login_audit (occurred_at, event_type, user_id, principal, ip_address, user_agent) " +
+            "FROM STDIN (FORMAT csv)";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long REPLAY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // Stopped after the web server (DEFAULT_PHASE - 2048) and its graceful shutdown (DEFAULT_PHASE - 1024)
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditRingBuffer<AuditEvent> buffer;
+    private final AuditOverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Path spillFile;
+    private final Path replayFile;
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter spilled;
+
+    private final Object spillLock = new Object();
+    private Writer spillWriter;
+    private volatile boolean spillPending;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public AuditService(JdbcTemplate jdbcTemplate,
+                        MeterRegistry meterRegistry,
+                        @Value("${audit.buffer-size:65536}") int bufferSize,
+                        @Value("${audit.batch-size:1000}") int batchSize,
+                        @Value("${audit.flush-interval-ms:500}") long flushIntervalMs,
+                        @Value("${audit.overflow-policy:DROP}") AuditOverflowPolicy overflowPolicy,
+                        @Value("${audit.spill-file:${java.io.tmpdir}/auth-service-audit.csv}") Path spillFile) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.buffer = new AuditRingBuffer<>(bufferSize);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.overflowPolicy = overflowPolicy;
+        this.spillFile = spillFile;
+        this.replayFile = spillFile.resolveSibling(spillFile.getFileName() + ".replay");
+        this.spillPending = Files.exists(spillFile) || Files.exists(replayFile);
+
+        this.written = outcomeCounter(meterRegistry, "written");
+        this.dropped = outcomeCounter(meterRegistry, "dropped");
+        this.spilled = outcomeCounter(meterRegistry, "spilled");
+        Gauge.builder("audit.buffer.size", buffer, AuditRingBuffer::size)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+    }
+
+    public void record(AuditEventType type, UUID userId, String principal, String ipAddress, String userAgent) {
+        AuditEvent event = new AuditEvent(Instant.now(), type, userId, principal, ipAddress, userAgent);
+        if (!running) {
+            persist(List.of(event));
+        } else if (!buffer.offer(event)) {
+            overflow(List.of(event));
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::runWriter, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    // Partitions are created a month ahead so rows never land in the default partition
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${audit.partition-cron:0 0 3 * * *}")
+    public void createUpcomingPartitions() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (YearMonth month : List.of(current, current.plusMonths(1))) {
+            String sql = String.format(
+                    "CREATE TABLE IF NOT EXISTS login_audit_y%dm%02d PARTITION OF login_audit " +
+                    "FOR VALUES FROM ('%s-01 00:00:00+00') TO ('%s-01 00:00:00+00')",
+                    month.getYear(), month.getMonthValue(), month, month.plusMonths(1));
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (Exception e) {
+                log.warn("Could not create audit partition for {}: {}", month, e.getMessage());
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        long flushDeadline = System.nanoTime() + flushIntervalNanos;
+        long nextReplay = System.nanoTime();
+
+        while (running) {
+            int drained = buffer.drainTo(batch, batchSize - batch.size());
+            long now = System.nanoTime();
+
+            if (batch.size() >= batchSize || (!batch.isEmpty() && now >= flushDeadline)) {
+                persist(batch);
+                batch.clear();
+                flushDeadline = now + flushIntervalNanos;
+            } else if (drained == 0) {
+                if (batch.isEmpty() && spillPending && now >= nextReplay) {
+                    replaySpill();
+                    nextReplay = now + REPLAY_INTERVAL_NANOS;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+
+        // Shutdown: write whatever is still buffered
+        do {
+            persist(batch);
+            batch.clear();
+        } while (buffer.drainTo(batch, batchSize) > 0);
+    }
+
+    private void persist(List<AuditEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        StringBuilder csv = new StringBuilder(batch.size() * 160);
+        for (AuditEvent event : batch) {
+            appendCsv(csv, event);
+        }
+
+        try {
+            copy(new StringReader(csv.toString()));
+            written.increment(batch.size());
+        } catch (Exception e) {
+            log.warn("Could not write {} audit events: {}", batch.size(), e.getMessage());
+            overflow(batch);
+        }
+    }
+
+    private long copy(Reader reader) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, reader);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void overflow(List<AuditEvent> events) {
+        if (overflowPolicy == AuditOverflowPolicy.SPILL && spill(events)) {
+            spilled.increment(events.size());
+        } else {
+            dropped.increment(events.size());
+        }
+    }
+
+    private boolean spill(List<AuditEvent> events) {
+        StringBuilder csv = new StringBuilder();
+        for (AuditEvent event : events) {
+            appendCsv(csv, event);
+        }
+
+        synchronized (spillLock) {
+            try {
+                if (spillWriter == null) {
+                    spillWriter = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                spillWriter.write(csv.toString());
+                spillWriter.flush();
+                spillPending = true;
+                return true;
+            } catch (IOException e) {
+                log.warn("Could not spill audit events to {}: {}", spillFile, e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    private void replaySpill() {
+        try {
+            // A replay file left by a failed attempt goes first, new spills keep appending meanwhile
+            if (!Files.exists(replayFile)) {
+                synchronized (spillLock) {
+                    if (spillWriter != null) {
+                        spillWriter.close();
+                        spillWriter = null;
+                    }
+                    if (!Files.exists(spillFile)) {
+                        spillPending = false;
+                        return;
+                    }
+                    Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+
+            try (Reader reader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+                long rows = copy(reader);
+                written.increment(rows);
+                log.info("Replayed {} spilled audit events", rows);
+            }
+            Files.delete(replayFile);
+            spillPending = Files.exists(spillFile);
+        } catch (Exception e) {
+            log.warn("Could not replay spilled audit events: {}", e.getMessage());
+        }
+    }
+
+    private static void appendCsv(StringBuilder csv, AuditEvent event) {
+        csv.append(event.getOccurredAt()).append(',')
+                .append(event.getType().name()).append(',');
+        if (event.getUserId() != null) {
+            csv.append(event.getUserId());
+        }
+        csv.append(',');
+        appendQuoted(csv, event.getPrincipal(), 255);
+        csv.append(',');
+        appendQuoted(csv, event.getIpAddress(), 64);
+        csv.append(',');
+        appendQuoted(csv, event.getUserAgent(), 512);
+        csv.append('\n');
+    }
+
+    // Unquoted empty fields are NULL in COPY csv, quoted values are taken literally
+    private static void appendQuoted(StringBuilder csv, String value, int maxLength) {
+        if (value == null) {
+            return;
+        }
+        String truncated = value.length() > maxLength ? value.substring(0, maxLength) : value;
+        csv.append('"').append(truncated.replace("\"", "\"\"")).append('"');
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("audit.events")
+                .description("Audit events by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+}
@@ -1,11 +1,20 @@
 package com.imran.authservice.service;
 
 import com.imran.authservice.config.JwtConfig;
+import com.imran.authservice.config.ReplicaLagTracker;
 import com.imran.authservice.dto.AuthRequest;
 import com.imran.authservice.dto.AuthResponse;
+import com.imran.authservice.dto.ForgotPasswordRequest;
+import com.imran.authservice.dto.MfaVerifyRequest;
 import com.imran.authservice.dto.RegisterRequest;
+import com.imran.authservice.dto.ResetPasswordRequest;
 import com.imran.authservice.dto.UserDto;
+import com.imran.authservice.enums.AuditEventType;
+import com.imran.authservice.enums.OneTimeTokenPurpose;
+import com.imran.authservice.enums.TokenMode;
 import com.imran.authservice.enums.UserStatus;
+import com.imran.authservice.event.AccountEmailEvent;
+import com.imran.authservice.event.UserModifiedEvent;
 import com.imran.authservice.exception.InvalidTokenException;
 import com.imran.authservice.exception.ResourceAlreadyExistsException;
 import com.imran.authservice.exception.ResourceNotFoundException;
@@ -13,21 +22,25 @@ import com.imran.authservice.model.RefreshToken;
 import com.imran.authservice.model.User;
 import com.imran.authservice.repository.RefreshTokenRepository;
 import com.imran.authservice.repository.UserRepository;
+import com.imran.authservice.security.AccessTokenClaims;
 import com.imran.authservice.security.JwtTokenProvider;
+import com.imran.authservice.security.OpaqueTokenService;
+import com.imran.authservice.util.RefreshTokens;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.LockedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -40,18 +53,33 @@ public class AuthService {
     private final UserRepository userRepository;
     private final RefreshTokenRepository refreshTokenRepository;
     private final JwtTokenProvider jwtTokenProvider;
+    private final OpaqueTokenService opaqueTokenService;
     private final PasswordEncoder passwordEncoder;
     private final JwtConfig jwtConfig;
     private final TokenBlacklistService tokenBlacklistService;
+    private final ReplicaLagTracker replicaLagTracker;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MfaService mfaService;
+    private final OneTimeTokenService oneTimeTokenService;
+    private final AuditService auditService;
+    private final UserVersionCache userVersionCache;
+    private final RefreshTokenRevocationQueue refreshTokenRevocationQueue;
+    private final LoginAttemptService loginAttemptService;
 
-    @Value("${security.max-failed-attempts:5}")
-    private int maxFailedAttempts;
+    @Value("${security.email-verification-ttl:24h}")
+    private Duration emailVerificationTtl;
 
-    @Value("${security.lock-time-minutes:15}")
-    private int lockTimeMinutes;
+    @Value("${security.password-reset-ttl:30m}")
+    private Duration passwordResetTtl;
+
+    // Two tabs refreshing at once, or a retry after a lost response, present a just-rotated token
+    @Value("${security.refresh-reuse-grace:30s}")
+    private Duration refreshReuseGrace;
 
     @Transactional
     public AuthResponse register(RegisterRequest request) {
+        request.setEmail(User.normalizeEmail(request.getEmail()));
+
         if (userRepository.existsByEmail(request.getEmail())) {
             throw new ResourceAlreadyExistsException("Email already in use");
         }
@@ -68,14 +96,16 @@ public class AuthService {
                 .lastName(request.getLastName())
                 .status(UserStatus.ACTIVE)
                 .failedLoginAttempts(0)
-                .emailVerificationToken(generateEmailVerificationToken())
-                .emailVerificationTokenExpiry(LocalDateTime.now().plusHours(24))
                 .build();
 
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserModifiedEvent(user.getId()));
 
-        // Send verification email
-        // TODO
+        String verificationToken = oneTimeTokenService.issueToken(
+                OneTimeTokenPurpose.EMAIL_VERIFICATION, user.getId(), emailVerificationTtl);
+
+        eventPublisher.publishEvent(new AccountEmailEvent(
+                user.getEmail(), OneTimeTokenPurpose.EMAIL_VERIFICATION, verificationToken));
 
         return AuthResponse.builder()
                 .message("Registration successful. Please verify your email.")
@@ -84,11 +114,15 @@ public class AuthService {
 
     @Transactional
     public AuthResponse authenticate(AuthRequest request, String ipAddress, String userAgent) {
-        User user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new BadCredentialsException("Invalid credentials"));
+        User user = userRepository.findByEmailForLogin(request.getEmail())
+                .orElseThrow(() -> {
+                    auditService.record(AuditEventType.LOGIN_FAILURE, null, request.getEmail(), ipAddress, userAgent);
+                    return new BadCredentialsException("Invalid credentials");
+                });
 
         // Check if account is locked
         if (user.getLockedUntil() != null && user.getLockedUntil().isAfter(LocalDateTime.now())) {
+            auditService.record(AuditEventType.LOGIN_FAILURE, user.getId(), user.getEmail(), ipAddress, userAgent);
             throw new LockedException("Account is locked. Try again later.");
         }
 
@@ -101,72 +135,164 @@ public class AuthService {
             );
             SecurityContextHolder.getContext().setAuthentication(authentication);
 
-            // Reset failed attempts on successful login
-            user.setFailedLoginAttempts(0);
-            user.setLockedUntil(null);
-            user.setLastLogin(LocalDateTime.now());
-            userRepository.save(user);
+            // Password alone is not enough, tokens are only issued after the code is verified.
+            // Failed attempts are only reset once the second factor has succeeded too.
+            if (user.isMfaEnabled()) {
+                auditService.record(AuditEventType.MFA_CHALLENGE, user.getId(), user.getEmail(), ipAddress, userAgent);
 
-            String accessToken = jwtTokenProvider.generateAccessToken(authentication);
-            String refreshToken = createRefreshToken(user, ipAddress, userAgent).getToken();
+                return AuthResponse.builder()
+                        .mfaRequired(true)
+                        .mfaToken(mfaService.createChallenge(user, request.getTokenMode()))
+                        .message("Verification code required")
+                        .build();
+            }
 
-            UserDto userDto = mapToUserDto(user);
+            return completeLogin(user, request.getTokenMode(), ipAddress, userAgent);
+        } catch (BadCredentialsException e) {
+            loginAttemptService.recordFailure(user.getId());
+            auditService.record(AuditEventType.LOGIN_FAILURE, user.getId(), user.getEmail(), ipAddress, userAgent);
+            throw new BadCredentialsException("Invalid credentials");
+        }
+    }
 
-            return AuthResponse.builder()
-                    .accessToken(accessToken)
-                    .refreshToken(refreshToken)
-                    .tokenType("Bearer")
-                    .expiresIn(jwtConfig.getAccessTokenExpiration())
-                    .user(userDto)
-                    .build();
+    @Transactional
+    public AuthResponse verifyMfa(MfaVerifyRequest request, String ipAddress, String userAgent) {
+        MfaService.VerifiedChallenge challenge;
+        try {
+            challenge = mfaService.verifyChallenge(request.getMfaToken(), request.getCode());
         } catch (BadCredentialsException e) {
-            // Increment failed attempts
-            int failedAttempts = user.getFailedLoginAttempts() == null ? 1 : user.getFailedLoginAttempts() + 1;
-            user.setFailedLoginAttempts(failedAttempts);
+            auditService.record(AuditEventType.MFA_FAILURE, null, null, ipAddress, userAgent);
+            throw e;
+        }
+        User user = challenge.getUser();
 
-            if (failedAttempts >= maxFailedAttempts) {
-                user.setLockedUntil(LocalDateTime.now().plusMinutes(lockTimeMinutes));
-                log.warn("Account locked for user: {}", user.getEmail());
-            }
+        if (!user.isAccountNonLocked()) {
+            throw new LockedException("Account is locked. Try again later.");
+        }
 
-            userRepository.save(user);
-            throw new BadCredentialsException("Invalid credentials");
+        return completeLogin(user, challenge.getTokenMode(), ipAddress, userAgent);
+    }
+
+    @Transactional
+    public String verifyEmail(String token) {
+        UUID userId = oneTimeTokenService.consumeToken(OneTimeTokenPurpose.EMAIL_VERIFICATION, token)
+                .orElseThrow(() -> new InvalidTokenException("Invalid or expired verification token"));
+        if (!loginAttemptService.recordEmailVerified(userId)) {
+            throw new ResourceNotFoundException("User not found");
         }
+        return "Email verified successfully.";
+    }
+
+    public String requestPasswordReset(ForgotPasswordRequest request) {
+        // Same answer whether or not the account exists, so emails cannot be enumerated
+        userRepository.findByEmail(request.getEmail()).ifPresent(user -> {
+            String resetToken = oneTimeTokenService.issueToken(
+                    OneTimeTokenPurpose.PASSWORD_RESET, user.getId(), passwordResetTtl);
+            eventPublisher.publishEvent(new AccountEmailEvent(
+                    user.getEmail(), OneTimeTokenPurpose.PASSWORD_RESET, resetToken));
+        });
+        return "If the account exists, a password reset email has been sent.";
     }
 
     @Transactional
-    public String logout(String refreshToken, String accessToken) {
-        log.info("Logout requested - blacklisting tokens");
+    public String resetPassword(ResetPasswordRequest request) {
+        UUID userId = oneTimeTokenService.consumeToken(OneTimeTokenPurpose.PASSWORD_RESET, request.getToken())
+                .orElseThrow(() -> new InvalidTokenException("Invalid or expired reset token"));
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+
+        loginAttemptService.recordPasswordReset(userId, passwordEncoder.encode(request.getNewPassword()));
+
+        // Sessions opened with the old password must not survive the reset
+        revokeAllSessions(user, "password_reset");
+        auditService.record(AuditEventType.PASSWORD_RESET, user.getId(), user.getEmail(), null, null);
+        return "Password has been reset.";
+    }
 
-        // Blacklist the access token
-        if (accessToken != null && !accessToken.isEmpty()) {
-            tokenBlacklistService.blacklistToken(accessToken);
-            log.debug("Access token blacklisted: {}", accessToken);
+    /**
+     * Every refresh rotates the token, which is also how legacy JWT refresh tokens are replaced.
+     * A token rotated longer than refresh-reuse-grace ago and presented again is treated as
+     * stolen: all of the user's sessions and access tokens are revoked. Tokens revoked by a
+     * logout, a session revoke or a password reset are only rejected. The transaction is
+     * committed even though the request fails, so that revocation sticks.
+     */
+    @Transactional(noRollbackFor = InvalidTokenException.class)
+    public AuthResponse refreshToken(String refreshToken, String ipAddress, String userAgent) {
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            throw new InvalidTokenException("Invalid refresh token");
         }
 
-        // Handle refresh token logout
-        if (refreshToken != null && !refreshToken.isEmpty()) {
-            try {
-                RefreshToken storedToken = refreshTokenRepository.findByToken(refreshToken)
-                        .orElseThrow(() -> new InvalidTokenException("Invalid refresh token"));
+        LocalDateTime now = LocalDateTime.now();
+        byte[] tokenHash = RefreshTokens.hash(refreshToken);
+        RefreshToken storedToken = refreshTokenRepository.findByTokenHash(tokenHash)
+                .orElseThrow(() -> new InvalidTokenException("Invalid refresh token"));
+        if (storedToken.isRevoked()) {
+            if (storedToken.isRotated() && storedToken.getRevokedAt().plus(refreshReuseGrace).isBefore(now)) {
+                log.warn("Rotated refresh token presented again for user {}", storedToken.getUser().getId());
+                revokeAllSessions(storedToken.getUser(), "refresh_token_reuse");
+            }
+            throw new InvalidTokenException("Invalid refresh token");
+        }
+        if (!storedToken.getExpiryDate().isAfter(now) || refreshTokenRevocationQueue.isPendingRevocation(refreshToken)) {
+            throw new InvalidTokenException("Invalid refresh token");
+        }
+
+        User user = userRepository.findByIdForLogin(storedToken.getUser().getId())
+                .filter(found -> found.isEnabled() && found.isAccountNonLocked())
+                .orElseThrow(() -> new InvalidTokenException("Invalid refresh token"));
+
+        // Exactly one of several concurrent refreshes with the same token gets to rotate it
+        if (refreshTokenRepository.rotateByTokenHash(tokenHash, now) != 1) {
+            throw new InvalidTokenException("Invalid refresh token");
+        }
+        auditService.record(AuditEventType.TOKEN_REFRESH, user.getId(), user.getEmail(), ipAddress, userAgent);
 
-                storedToken.setRevoked(true);
-                storedToken.setRevokedAt(LocalDateTime.now());
-                refreshTokenRepository.save(storedToken);
+        String newRefreshToken = RefreshTokens.generate();
+        RefreshToken session = createRefreshToken(user, newRefreshToken, storedToken.getTokenMode(), ipAddress, userAgent);
+        return AuthResponse.builder()
+                .accessToken(issueAccessToken(user, session))
+                .refreshToken(newRefreshToken)
+                .tokenType("Bearer")
+                .expiresIn(jwtConfig.getAccessTokenExpiration())
+                .user(mapToUserDto(user))
+                .build();
+    }
 
-                log.debug("Refresh token revoked: {}", refreshToken);
-            } catch (InvalidTokenException e) {
-                log.warn("Invalid refresh token during logout: {}", e.getMessage());
+    // Returns once the access token is revoked; the refresh token is revoked in the background
+    public String logout(String refreshToken, String accessToken, String ipAddress, String userAgent) {
+        log.info("Logout requested - blacklisting tokens");
+        UUID userId = null;
+
+        // Opaque tokens are simply deleted, JWTs are blacklisted until they expire
+        if (accessToken != null && !accessToken.isEmpty()) {
+            if (OpaqueTokenService.isOpaqueToken(accessToken)) {
+                userId = opaqueTokenService.resolve(accessToken)
+                        .map(OpaqueTokenService.OpaqueSession::getUserId)
+                        .orElse(null);
+                opaqueTokenService.revokeToken(accessToken);
+            } else {
+                AccessTokenClaims claims = jwtTokenProvider.parseAccessToken(accessToken);
+                if (claims != null) {
+                    userId = claims.getUserId();
+                }
+                tokenBlacklistService.blacklistToken(accessToken, "logout");
+                log.debug("Access token blacklisted: {}", accessToken);
             }
         }
 
+        if (refreshToken != null && !refreshToken.isEmpty()) {
+            refreshTokenRevocationQueue.enqueue(refreshToken);
+        }
+
+        auditService.record(AuditEventType.LOGOUT, userId, null, ipAddress, userAgent);
+
         // Clear security context
         SecurityContextHolder.clearContext();
         return "Successfully logged out.";
     }
 
-    @Transactional(readOnly = true)
-    public UserDto getCurrentUser() {
+    // The principal is the User loaded by the authentication filter, no query needed
+    public UUID getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
         if (authentication == null || !authentication.isAuthenticated()) {
@@ -174,35 +300,67 @@ public class AuthService {
             throw new ResourceNotFoundException("No authenticated user found!");
         }
 
-        Object principal = authentication.getPrincipal();
-        String username;
+        if (authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        log.error("Unknown principal type: {}", authentication.getPrincipal().getClass().getName());
+        throw new ResourceNotFoundException("Unable to determine current user");
+    }
 
-        if (principal instanceof UserDetails) {
-            username = ((UserDetails) principal).getUsername();
-        } else if (principal instanceof String) {
-            username = (String) principal;
-        } else {
-            log.error("Unknown principal type: {}", principal.getClass().getName());
-            throw new ResourceNotFoundException("Unable to determine current user");
+    @Transactional(readOnly = true)
+    public UserDto getCurrentUser() {
+        UUID userId = getCurrentUserId();
+        replicaLagTracker.pinIfRecentlyWritten(userId);
+
+        log.debug("Getting current user with id {}", userId);
+
+        UserDto user = userRepository.findDtoById(userId)
+                .orElseThrow(() -> {
+                    log.error("User not found in database: {}", userId);
+                    return new ResourceNotFoundException("User not found");
+                });
+        // A replica may not have replayed the write whose commit refreshed the entry
+        if (replicaLagTracker.readsFromPrimary()) {
+            userVersionCache.put(userId, UserVersionCache.versionOf(user.getUpdatedAt()));
         }
+        return user;
+    }
 
-        log.debug("Getting current user with username {}", username);
+    // The user entity is not saved here, a full-row UPDATE would overwrite concurrent lockout counts
+    private AuthResponse completeLogin(User user, TokenMode tokenMode, String ipAddress, String userAgent) {
+        LocalDateTime lastLogin = loginAttemptService.recordSuccess(user.getId());
+        auditService.record(AuditEventType.LOGIN_SUCCESS, user.getId(), user.getEmail(), ipAddress, userAgent);
 
-        User user = userRepository.findByEmail(username)
-                .orElseGet(() -> userRepository.findByUsername(username)
-                        .orElseThrow(() -> {
-                            log.error("User not found in database: {}", username);
-                            return new ResourceNotFoundException("User not found");
-                        }));
+        String refreshToken = RefreshTokens.generate();
+        RefreshToken session = createRefreshToken(user, refreshToken,
+                tokenMode == null ? TokenMode.JWT : tokenMode, ipAddress, userAgent);
+        String accessToken = issueAccessToken(user, session);
 
-        return mapToUserDto(user);
+        UserDto userDto = mapToUserDto(user);
+        userDto.setLastLogin(lastLogin);
+        return AuthResponse.builder()
+                .accessToken(accessToken)
+                .refreshToken(refreshToken)
+                .tokenType("Bearer")
+                .expiresIn(jwtConfig.getAccessTokenExpiration())
+                .user(userDto)
+                .build();
+    }
 
+    // JWTs carry the session id, so renewal can check that the session is still live
+    private String issueAccessToken(User user, RefreshToken session) {
+        return session.getTokenMode() == TokenMode.OPAQUE
+                ? opaqueTokenService.issueToken(user)
+                : jwtTokenProvider.generateAccessToken(
+                        new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()), session.getId());
     }
 
-    private RefreshToken createRefreshToken(User user, String ipAddress, String userAgent) {
+    // Only the token's hash is persisted, the token itself goes to the client
+    private RefreshToken createRefreshToken(User user, String token, TokenMode tokenMode, String ipAddress, String userAgent) {
         RefreshToken refreshToken = RefreshToken.builder()
                 .user(user)
-                .token(jwtTokenProvider.generateRefreshToken(user.getId()))
+                .tokenHash(RefreshTokens.hash(token))
+                .tokenMode(tokenMode)
                 .expiryDate(LocalDateTime.now().plusDays(7))
                 .ipAddress(ipAddress)
                 .userAgent(userAgent)
@@ -211,12 +369,11 @@ public class AuthService {
         return refreshTokenRepository.save(refreshToken);
     }
 
-    private String generateEmailVerificationToken() {
-        return UUID.randomUUID().toString();
-    }
-
-    private String generatePasswordResetToken() {
-        return UUID.randomUUID().toString();
+    private void revokeAllSessions(User user, String reason) {
+        log.info("Revoking all sessions of user {}: {}", user.getId(), reason);
+        refreshTokenRepository.revokeUserTokens(user, LocalDateTime.now());
+        tokenBlacklistService.blacklistAllUserTokens(user.getId().toString(), reason);
+        opaqueTokenService.revokeAllForUser(user.getId());
     }
 
     private UserDto mapToUserDto(User user) {
@@ -229,8 +386,10 @@ public class AuthService {
                 .status(user.getStatus())
                 .role(user.getRole())
                 .lastLogin(user.getLastLogin())
+                .emailVerified(user.isEmailVerified())
                 .mfaEnabled(user.isMfaEnabled())
                 .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
                 .build();
     }
 
@@ -0,0 +1,113 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.event.UserModifiedEvent;
+import com.imran.authservice.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Failed-attempt counting and lockout as single UPDATE statements, so concurrent
+ * logins on different nodes cannot overwrite each other's counts with a stale read.
+ * Password resets and email verification write only their own columns for the same
+ * reason: a full save of a loaded User would put back the lockout and last login it
+ * was read with.
+ * <p>
+ * The rows are written with JDBC and only the affected user is evicted from the
+ * second-level cache after commit; a JPQL bulk update would clear the whole users
+ * region on every login.
+ */
+@Service
+@Slf4j
+public class LoginAttemptService {
+
+    private static final String RECORD_FAILURE_SQL = """
+            UPDATE users SET failed_login_attempts = coalesce(failed_login_attempts, 0) + 1,
+                locked_until = CASE WHEN coalesce(failed_login_attempts, 0) + 1 >= ? THEN ? ELSE locked_until END
+            WHERE id = ?
+            RETURNING failed_login_attempts""";
+
+    private static final String RECORD_SUCCESS_SQL =
+            "UPDATE users SET last_login = ?, updated_at = ?, failed_login_attempts = 0, locked_until = NULL WHERE id = ?";
+
+    private static final String RECORD_PASSWORD_RESET_SQL =
+            "UPDATE users SET password = ?, updated_at = ?, failed_login_attempts = 0, locked_until = NULL WHERE id = ?";
+
+    private static final String RECORD_EMAIL_VERIFIED_SQL =
+            "UPDATE users SET email_verified = true, updated_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxFailedAttempts;
+    private final int lockTimeMinutes;
+
+    public LoginAttemptService(JdbcTemplate jdbcTemplate,
+                               EntityManagerFactory entityManagerFactory,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${security.max-failed-attempts:5}") int maxFailedAttempts,
+                               @Value("${security.lock-time-minutes:15}") int lockTimeMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.eventPublisher = eventPublisher;
+        this.maxFailedAttempts = maxFailedAttempts;
+        this.lockTimeMinutes = lockTimeMinutes;
+    }
+
+    // Own transaction: the caller rethrows BadCredentialsException, which rolls its transaction back
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void recordFailure(UUID userId) {
+        List<Integer> attempts = jdbcTemplate.query(RECORD_FAILURE_SQL, (rs, rowNum) -> rs.getInt(1),
+                maxFailedAttempts, LocalDateTime.now().plusMinutes(lockTimeMinutes), userId);
+        if (!attempts.isEmpty() && attempts.get(0) == maxFailedAttempts) {
+            log.warn("Account locked for user: {}", userId);
+        }
+        afterCommit(userId);
+    }
+
+    // Returns the login time written to the row
+    @Transactional
+    public LocalDateTime recordSuccess(UUID userId) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update(RECORD_SUCCESS_SQL, now, now, userId);
+        afterCommit(userId);
+        return now;
+    }
+
+    // Takes the encoded password; a reset also lifts a lockout
+    @Transactional
+    public boolean recordPasswordReset(UUID userId, String encodedPassword) {
+        int updated = jdbcTemplate.update(RECORD_PASSWORD_RESET_SQL, encodedPassword, LocalDateTime.now(), userId);
+        afterCommit(userId);
+        return updated > 0;
+    }
+
+    @Transactional
+    public boolean recordEmailVerified(UUID userId) {
+        int updated = jdbcTemplate.update(RECORD_EMAIL_VERIFIED_SQL, LocalDateTime.now(), userId);
+        afterCommit(userId);
+        return updated > 0;
+    }
+
+    private void afterCommit(UUID userId) {
+        eventPublisher.publishEvent(new UserModifiedEvent(userId));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                entityManagerFactory.getCache().evict(User.class, userId);
+            }
+        });
+    }
+
+}
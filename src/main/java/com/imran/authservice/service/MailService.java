@@ -0,0 +1,72 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.event.AccountEmailEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Sends verification and password reset emails once the transaction that issued
+ * the token has committed, off the request thread so an SMTP round trip never
+ * holds a connection or delays the response.
+ * <p>
+ * Without spring.mail.host no sender is configured and the email is only logged.
+ */
+@Service
+@Slf4j
+public class MailService {
+
+    private final ObjectProvider<JavaMailSender> mailSender;
+    private final String from;
+    private final String baseUrl;
+    private final String passwordResetUrl;
+
+    public MailService(ObjectProvider<JavaMailSender> mailSender,
+                       @Value("${mail.from:no-reply@localhost}") String from,
+                       @Value("${mail.base-url:http://localhost:20001/auth-service}") String baseUrl,
+                       @Value("${mail.password-reset-url:${mail.base-url:http://localhost:20001/auth-service}/reset-password}") String passwordResetUrl) {
+        this.mailSender = mailSender;
+        this.from = from;
+        this.baseUrl = baseUrl;
+        this.passwordResetUrl = passwordResetUrl;
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountEmail(AccountEmailEvent event) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(event.getEmail());
+        switch (event.getPurpose()) {
+            case EMAIL_VERIFICATION -> {
+                message.setSubject("Verify your email address");
+                message.setText("Confirm your email address by opening this link:\n\n"
+                        + baseUrl + "/api/v1/auth/verify-email/" + event.getToken() + "\n");
+            }
+            case PASSWORD_RESET -> {
+                message.setSubject("Reset your password");
+                message.setText("Choose a new password by opening this link:\n\n"
+                        + passwordResetUrl + "?token=" + event.getToken() + "\n\n"
+                        + "If you did not ask for a password reset, ignore this email.\n");
+            }
+        }
+
+        JavaMailSender sender = mailSender.getIfAvailable();
+        if (sender == null) {
+            log.warn("No mail sender configured, {} email for {} not sent", event.getPurpose(), event.getEmail());
+            return;
+        }
+        try {
+            sender.send(message);
+            log.debug("{} email sent to {}", event.getPurpose(), event.getEmail());
+        } catch (Exception e) {
+            log.error("Could not send {} email to {}: {}", event.getPurpose(), event.getEmail(), e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.dto.MfaSetupResponse;
+import com.imran.authservice.enums.TokenMode;
+import com.imran.authservice.event.UserModifiedEvent;
+import com.imran.authservice.exception.InvalidRequestException;
+import com.imran.authservice.exception.InvalidTokenException;
+import com.imran.authservice.exception.ResourceNotFoundException;
+import com.imran.authservice.model.User;
+import com.imran.authservice.repository.UserRepository;
+import com.imran.authservice.security.TotpService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * TOTP enrollment and the second step of login.
+ * <p>
+ * A password login for an MFA user only yields a short-lived challenge kept in
+ * Redis. The challenge is exchanged for tokens once, with a limited number of
+ * code attempts. Wrong codes also count towards the account lockout, so opening
+ * new challenges does not buy more guesses.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MfaService {
+
+    private static final String CHALLENGE_PREFIX = "mfa:challenge:";
+    private static final String ATTEMPTS_SUFFIX = ":attempts";
+
+    private final UserRepository userRepository;
+    private final TotpService totpService;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LoginAttemptService loginAttemptService;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${security.mfa.challenge-ttl:5m}")
+    private Duration challengeTtl;
+
+    @Value("${security.mfa.max-attempts:5}")
+    private int maxAttempts;
+
+    @Transactional
+    public MfaSetupResponse setup(User principal) {
+        User user = loadUser(principal.getId());
+        if (user.isMfaEnabled()) {
+            throw new InvalidRequestException("MFA is already enabled");
+        }
+
+        // Stays inactive until a code generated from it has been confirmed
+        String secret = totpService.generateSecret();
+        user.setMfaSecret(secret);
+        userRepository.save(user);
+        eventPublisher.publishEvent(new UserModifiedEvent(user.getId()));
+
+        return MfaSetupResponse.builder()
+                .secret(secret)
+                .otpAuthUri(totpService.otpAuthUri(secret, user.getEmail()))
+                .build();
+    }
+
+    @Transactional
+    public void enable(User principal, String code) {
+        User user = loadUser(principal.getId());
+        if (user.isMfaEnabled()) {
+            throw new InvalidRequestException("MFA is already enabled");
+        }
+        if (user.getMfaSecret() == null) {
+            throw new InvalidRequestException("MFA setup has not been started");
+        }
+        if (!totpService.verifyCode(user.getId(), user.getMfaSecret(), code)) {
+            throw new BadCredentialsException("Invalid verification code");
+        }
+
+        user.setMfaEnabled(true);
+        userRepository.save(user);
+        eventPublisher.publishEvent(new UserModifiedEvent(user.getId()));
+        log.info("MFA enabled for user: {}", user.getId());
+    }
+
+    @Transactional
+    public void disable(User principal, String code) {
+        User user = loadUser(principal.getId());
+        if (!user.isMfaEnabled()) {
+            throw new InvalidRequestException("MFA is not enabled");
+        }
+        if (!totpService.verifyCode(user.getId(), user.getMfaSecret(), code)) {
+            throw new BadCredentialsException("Invalid verification code");
+        }
+
+        user.setMfaEnabled(false);
+        user.setMfaSecret(null);
+        userRepository.save(user);
+        eventPublisher.publishEvent(new UserModifiedEvent(user.getId()));
+        log.info("MFA disabled for user: {}", user.getId());
+    }
+
+    public String createChallenge(User user, TokenMode tokenMode) {
+        byte[] random = new byte[32];
+        secureRandom.nextBytes(random);
+        String challenge = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+
+        TokenMode mode = tokenMode == null ? TokenMode.JWT : tokenMode;
+        redisTemplate.opsForValue().set(CHALLENGE_PREFIX + challenge, user.getId() + ":" + mode.name(), challengeTtl);
+        return challenge;
+    }
+
+    /**
+     * Checks the code against the challenge's user and consumes the challenge on success.
+     */
+    @Transactional(readOnly = true)
+    public VerifiedChallenge verifyChallenge(String challenge, String code) {
+        String key = CHALLENGE_PREFIX + challenge;
+        Object stored = redisTemplate.opsForValue().get(key);
+        if (stored == null) {
+            throw new InvalidTokenException("Invalid or expired MFA token");
+        }
+
+        String[] parts = stored.toString().split(":");
+        User user = userRepository.findByIdForLogin(UUID.fromString(parts[0]))
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        if (!user.isAccountNonLocked()) {
+            redisTemplate.delete(key);
+            throw new LockedException("Account is locked. Try again later.");
+        }
+
+        if (!user.isMfaEnabled() || !totpService.verifyCode(user.getId(), user.getMfaSecret(), code)) {
+            loginAttemptService.recordFailure(user.getId());
+            Long attempts = redisTemplate.opsForValue().increment(key + ATTEMPTS_SUFFIX);
+            redisTemplate.expire(key + ATTEMPTS_SUFFIX, challengeTtl);
+            if (attempts != null && attempts >= maxAttempts) {
+                redisTemplate.delete(key);
+                log.warn("MFA challenge discarded after {} failed attempts for user: {}", attempts, user.getId());
+            }
+            throw new BadCredentialsException("Invalid verification code");
+        }
+
+        // Only one concurrent request can delete the key, the others lose the race
+        if (!Boolean.TRUE.equals(redisTemplate.delete(key))) {
+            throw new InvalidTokenException("Invalid or expired MFA token");
+        }
+        redisTemplate.delete(key + ATTEMPTS_SUFFIX);
+
+        return new VerifiedChallenge(user, TokenMode.valueOf(parts[1]));
+    }
+
+    private User loadUser(UUID userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+
+    @lombok.Value
+    public static class VerifiedChallenge {
+        User user;
+        TokenMode tokenMode;
+    }
+
+}
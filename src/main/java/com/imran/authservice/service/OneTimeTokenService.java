@@ -0,0 +1,64 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.enums.OneTimeTokenPurpose;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Single-use tokens for email verification and password reset.
+ * <p>
+ * Only the SHA-256 of a token is used as the Redis key, so a dump of Redis cannot
+ * be replayed. Redis expires unused tokens, and GETDEL redeems a token and deletes
+ * it in one atomic step.
+ */
+@Service
+@RequiredArgsConstructor
+public class OneTimeTokenService {
+
+    private static final String TOKEN_PREFIX = "ott:";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public String issueToken(OneTimeTokenPurpose purpose, UUID userId, Duration ttl) {
+        byte[] random = new byte[32];
+        secureRandom.nextBytes(random);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+
+        redisTemplate.opsForValue().set(key(purpose, token), userId.toString(), ttl);
+        return token;
+    }
+
+    /**
+     * Returns the owning user id and invalidates the token, at most once per token.
+     */
+    public Optional<UUID> consumeToken(OneTimeTokenPurpose purpose, String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Object userId = redisTemplate.opsForValue().getAndDelete(key(purpose, token));
+        return Optional.ofNullable(userId).map(id -> UUID.fromString(id.toString()));
+    }
+
+    private static String key(OneTimeTokenPurpose purpose, String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return TOKEN_PREFIX + purpose.name().toLowerCase() + ":"
+                    + Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.imran.authservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Node-local replica of recent revocations, keyed by token digest and kept until
+ * each token would have expired anyway. It is fed by local revocations and by the
+ * revocation channel, and answers blacklist checks while Redis is unavailable.
+ * User-wide revocations are kept per user id for one access-token lifetime, after
+ * that no token issued before them can still be valid.
+ */
+@Component
+public class RecentRevocations {
+
+    private final long maximumSize;
+    private final Cache<String, Long> userRevocations;
+    private volatile Cache<String, Long> revocations;
+
+    public RecentRevocations(@Value("${security.blacklist.local-replica-size:100000}") long maximumSize,
+                             @Value("${jwt.access-token-expiration:900000}") long accessTokenLifetimeMs) {
+        this.maximumSize = maximumSize;
+        this.revocations = newRevocationCache(16);
+        this.userRevocations = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(accessTokenLifetimeMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    // Called at startup before traffic: sized once for the snapshot about to be loaded,
+    // so loading it does not rehash the table over and over
+    public void presize(long expectedEntries) {
+        Cache<String, Long> presized = newRevocationCache((int) Math.min(expectedEntries, maximumSize));
+        presized.putAll(revocations.asMap());
+        revocations = presized;
+    }
+
+    public void add(String digest, long expiresAtMillis) {
+        revocations.put(digest, expiresAtMillis);
+    }
+
+    public boolean contains(String digest) {
+        return revocations.getIfPresent(digest) != null;
+    }
+
+    // Tokens of this user issued at or before revokedBeforeMillis are revoked
+    public void addUserRevocation(String userId, long revokedBeforeMillis) {
+        userRevocations.asMap().merge(userId, revokedBeforeMillis, Math::max);
+    }
+
+    public boolean contains(String digest, String userId, Long issuedAtMillis) {
+        if (contains(digest)) {
+            return true;
+        }
+        Long revokedBefore = userRevocations.getIfPresent(userId);
+        return revokedBefore != null && issuedAtMillis != null && issuedAtMillis <= revokedBefore;
+    }
+
+    public long size() {
+        return revocations.estimatedSize();
+    }
+
+    private Cache<String, Long> newRevocationCache(int initialCapacity) {
+        return Caffeine.newBuilder()
+                .initialCapacity(initialCapacity)
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Long>() {
+                    @Override
+                    public long expireAfterCreate(String key, Long expiresAtMillis, long currentTime) {
+                        return Math.max(0, (expiresAtMillis - System.currentTimeMillis()) * 1_000_000);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Long expiresAtMillis, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, expiresAtMillis, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Long expiresAtMillis, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    // Over the decoded signature, so no re-encoding of a revoked token gets a different key
+    public static String digest(String token) {
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(token.lastIndexOf('.') + 1));
+        } catch (IllegalArgumentException e) {
+            signature = token.getBytes(StandardCharsets.US_ASCII);
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(signature);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+}
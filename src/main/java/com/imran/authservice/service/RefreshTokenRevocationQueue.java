@@ -0,0 +1,193 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.repository.RefreshTokenRepository;
+import com.imran.authservice.util.RefreshTokens;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refresh-token revocations from logout, queued in a Redis Stream and applied to
+ * refresh_tokens in batches of one UPDATE ... WHERE token_hash IN (...). Only token
+ * hashes are written to Redis.
+ * <p>
+ * Guarantees:
+ * <ul>
+ *   <li>Logout returns once XADD is acknowledged, so the revocation is as durable as
+ *       Redis persistence (appendonly) makes it. Until it is applied, a marker key
+ *       lets the refresh path reject the token. The marker is deleted by the apply,
+ *       its TTL is the refresh-token lifetime so an outage cannot outlast it, and a
+ *       marker that cannot be read counts as present.</li>
+ *   <li>Delivery is at-least-once. Entries are acknowledged only after their UPDATE
+ *       committed; entries of a crashed consumer stay pending and are claimed by
+ *       any node once they have been idle for claim-idle.</li>
+ *   <li>There is no ordering between entries, and none is needed: revocation only
+ *       ever flips revoked from false to true, so replays and reordering are no-ops.</li>
+ * </ul>
+ * When the stream cannot be written, the revocation is applied synchronously, and
+ * when that fails too the logout fails.
+ */
+@Service
+@Slf4j
+public class RefreshTokenRevocationQueue {
+
+    private static final String STREAM_KEY = "logout:refresh-revocations";
+    private static final String GROUP = "refresh-revokers";
+    private static final String PENDING_PREFIX = "logout:pending:";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final StreamOperations<String, Object, Object> stream;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Consumer consumer;
+    private final int batchSize;
+    private final Duration claimIdle;
+    private final Duration pendingMarkerTtl;
+
+    private final AtomicLong streamLength = new AtomicLong();
+    private final Timer queueDelay;
+
+    public RefreshTokenRevocationQueue(@Qualifier("stringRedisTemplate") RedisTemplate<String, String> redisTemplate,
+                                       RefreshTokenRepository refreshTokenRepository,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${logout.queue.batch-size:500}") int batchSize,
+                                       @Value("${logout.queue.claim-idle:60s}") Duration claimIdle,
+                                       @Value("${jwt.refresh-token-expiration:604800000}") long refreshTokenLifetimeMs) {
+        this.redisTemplate = redisTemplate;
+        this.stream = redisTemplate.opsForStream();
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.consumer = Consumer.from(GROUP, ManagementFactory.getRuntimeMXBean().getName());
+        this.batchSize = batchSize;
+        this.claimIdle = claimIdle;
+        this.pendingMarkerTtl = Duration.ofMillis(refreshTokenLifetimeMs);
+
+        Gauge.builder("logout.queue.length", streamLength, AtomicLong::get)
+                .description("Refresh-token revocations queued or pending acknowledgement")
+                .register(meterRegistry);
+        this.queueDelay = Timer.builder("logout.queue.delay")
+                .description("Time from logout until the refresh-token revocation was applied")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void createGroup() {
+        try {
+            stream.createGroup(STREAM_KEY, ReadOffset.from("0"), GROUP);
+        } catch (Exception e) {
+            // BUSYGROUP: another node or an earlier start created it
+            log.debug("Revocation consumer group not created: {}", e.getMessage());
+        }
+    }
+
+    public void enqueue(String refreshToken) {
+        byte[] tokenHash = RefreshTokens.hash(refreshToken);
+        String encodedHash = RefreshTokens.encode(tokenHash);
+        try {
+            redisTemplate.opsForValue().set(PENDING_PREFIX + encodedHash, "1", pendingMarkerTtl);
+            stream.add(StreamRecords.newRecord().in(STREAM_KEY).ofMap(Map.of("hash", encodedHash)));
+        } catch (Exception e) {
+            log.warn("Could not queue refresh-token revocation, applying it now: {}", e.getMessage());
+            revoke(List.of(tokenHash));
+        }
+    }
+
+    // True while a logout's revocation may not have reached the database yet, and whenever that is unknown
+    public boolean isPendingRevocation(String refreshToken) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(PENDING_PREFIX + RefreshTokens.encode(RefreshTokens.hash(refreshToken))));
+        } catch (Exception e) {
+            log.warn("Could not check pending refresh-token revocations, rejecting: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${logout.queue.flush-interval:500ms}")
+    public void drain() {
+        try {
+            List<MapRecord<String, Object, Object>> records;
+            do {
+                records = stream.read(consumer, StreamReadOptions.empty().count(batchSize),
+                        StreamOffset.create(STREAM_KEY, ReadOffset.lastConsumed()));
+                apply(records);
+            } while (records != null && records.size() == batchSize);
+
+            claimStale();
+            Long length = stream.size(STREAM_KEY);
+            streamLength.set(length == null ? 0 : length);
+        } catch (Exception e) {
+            log.warn("Could not drain refresh-token revocations: {}", e.getMessage());
+        }
+    }
+
+    // Entries delivered to a consumer that died, or whose UPDATE failed, are retried here
+    private void claimStale() {
+        PendingMessages pending = stream.pending(STREAM_KEY, GROUP, Range.unbounded(), batchSize);
+        RecordId[] stale = pending.stream()
+                .filter(message -> message.getElapsedTimeSinceLastDelivery().compareTo(claimIdle) >= 0)
+                .map(PendingMessage::getId)
+                .toArray(RecordId[]::new);
+        if (stale.length > 0) {
+            log.info("Claiming {} stale refresh-token revocations", stale.length);
+            apply(stream.claim(STREAM_KEY, GROUP, consumer.getName(), claimIdle, stale));
+        }
+    }
+
+    private void apply(List<MapRecord<String, Object, Object>> records) {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+
+        List<String> encodedHashes = records.stream()
+                .map(record -> (String) record.getValue().get("hash"))
+                .toList();
+        revoke(encodedHashes.stream().map(RefreshTokens::decode).toList());
+
+        RecordId[] ids = records.stream().map(MapRecord::getId).toArray(RecordId[]::new);
+        stream.acknowledge(STREAM_KEY, GROUP, ids);
+        stream.delete(STREAM_KEY, ids);
+
+        long now = System.currentTimeMillis();
+        for (RecordId id : ids) {
+            queueDelay.record(now - id.getTimestamp(), TimeUnit.MILLISECONDS);
+        }
+        redisTemplate.delete(encodedHashes.stream().map(hash -> PENDING_PREFIX + hash).toList());
+    }
+
+    private void revoke(List<byte[]> tokenHashes) {
+        Integer revoked = transactionTemplate.execute(status ->
+                refreshTokenRepository.revokeTokens(tokenHashes, LocalDateTime.now()));
+        log.debug("Revoked {} of {} queued refresh tokens", revoked, tokenHashes.size());
+    }
+
+}
@@ -0,0 +1,346 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.audit.AuditRingBuffer;
+import com.imran.authservice.model.BlacklistedToken;
+import com.imran.authservice.repository.BlacklistedTokenRepository;
+import com.imran.authservice.util.UuidV7;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Durable copy of the Redis blacklist in blacklisted_tokens.
+ * <p>
+ * Revocations are queued by the request thread and written behind in batches, so
+ * logout latency does not include a database round trip. On startup, and whenever
+ * the snapshot marker disappears from Redis (flush, failover without persistence),
+ * live rows are streamed back with a server-side cursor and bulk-loaded into Redis
+ * through pipelined SETs. Only one node loads Redis at a time, every node fills its
+ * local replica on startup.
+ * <p>
+ * A batch the database refuses is kept and retried first on the next flush, up to
+ * buffer-size revocations; only beyond that are the oldest given up on, and those
+ * are still in Redis until they expire.
+ */
+@Service
+@Slf4j
+public class RevocationStore {
+
+    static final String USER_DIGEST_PREFIX = "user:";
+
+    private static final String SNAPSHOT_MARKER = "blacklist:snapshot-loaded";
+    private static final String RELOAD_LOCK = "blacklist:snapshot-reload";
+    private static final Duration RELOAD_LOCK_TTL = Duration.ofMinutes(5);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO blacklisted_tokens (id, token_digest, blacklisted_at, expires_at, user_id, reason) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (token_digest) DO UPDATE SET " +
+            "blacklisted_at = GREATEST(blacklisted_tokens.blacklisted_at, EXCLUDED.blacklisted_at), " +
+            "expires_at = GREATEST(blacklisted_tokens.expires_at, EXCLUDED.expires_at)";
+    private static final String SNAPSHOT_SQL =
+            "SELECT token_digest, user_id, blacklisted_at, expires_at FROM blacklisted_tokens WHERE expires_at > ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final BlacklistedTokenRepository blacklistedTokenRepository;
+    private final RecentRevocations recentRevocations;
+    private final AuditRingBuffer<BlacklistedToken> pending;
+    private final Queue<BlacklistedToken> retry = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retrySize = new AtomicInteger();
+    private final int retryCapacity;
+    private final int batchSize;
+    private final int pipelineSize;
+    private final int fetchSize;
+
+    private final Counter written;
+    private final Counter failed;
+    private final Counter dropped;
+    private final Timer snapshotLoad;
+
+    public RevocationStore(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           @Qualifier("stringRedisTemplate") RedisTemplate<String, String> redisTemplate,
+                           BlacklistedTokenRepository blacklistedTokenRepository,
+                           RecentRevocations recentRevocations,
+                           MeterRegistry meterRegistry,
+                           @Value("${security.blacklist.store.buffer-size:65536}") int bufferSize,
+                           @Value("${security.blacklist.store.batch-size:1000}") int batchSize,
+                           @Value("${security.blacklist.store.pipeline-size:10000}") int pipelineSize,
+                           @Value("${security.blacklist.store.fetch-size:10000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.redisTemplate = redisTemplate;
+        this.blacklistedTokenRepository = blacklistedTokenRepository;
+        this.recentRevocations = recentRevocations;
+        this.pending = new AuditRingBuffer<>(bufferSize);
+        this.retryCapacity = bufferSize;
+        this.batchSize = batchSize;
+        this.pipelineSize = pipelineSize;
+        this.fetchSize = fetchSize;
+
+        this.written = writeCounter(meterRegistry, "written");
+        this.failed = writeCounter(meterRegistry, "failed");
+        this.dropped = writeCounter(meterRegistry, "dropped");
+        Gauge.builder("blacklist.store.retry.size", retrySize, AtomicInteger::get)
+                .description("Revocations waiting to be written again after a failed batch")
+                .register(meterRegistry);
+        this.snapshotLoad = Timer.builder("blacklist.snapshot.load")
+                .description("Time to stream the revocation snapshot into Redis")
+                .register(meterRegistry);
+    }
+
+    public static BlacklistedToken tokenRevocation(String digest, String userId, long expiresAtMillis, String reason) {
+        return new BlacklistedToken(null, digest, LocalDateTime.now(), toLocalDateTime(expiresAtMillis), userId, reason);
+    }
+
+    // blacklistedAt carries the revoked-before millisecond, the row lives for one access-token lifetime
+    public static BlacklistedToken userRevocation(String userId, long revokedBeforeMillis, Duration lifetime, String reason) {
+        return new BlacklistedToken(null, USER_DIGEST_PREFIX + userId, toLocalDateTime(revokedBeforeMillis),
+                toLocalDateTime(revokedBeforeMillis + lifetime.toMillis()), userId, reason);
+    }
+
+    // Never blocks: a full queue is written through on the caller's thread instead of dropped
+    public void save(BlacklistedToken revocation) {
+        if (!pending.offer(revocation)) {
+            List<BlacklistedToken> batch = List.of(revocation);
+            if (!write(batch)) {
+                retain(batch);
+            }
+        }
+    }
+
+    // Earlier failures go first; while the database keeps failing the rest waits for the next flush
+    @Scheduled(fixedDelayString = "${security.blacklist.store.flush-interval:1s}")
+    @PreDestroy
+    public synchronized void flush() {
+        List<BlacklistedToken> batch = new ArrayList<>(batchSize);
+        while (true) {
+            BlacklistedToken retried;
+            while (batch.size() < batchSize && (retried = retry.poll()) != null) {
+                retrySize.decrementAndGet();
+                batch.add(retried);
+            }
+            pending.drainTo(batch, batchSize - batch.size());
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (!write(batch)) {
+                retain(batch);
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            recentRevocations.presize(blacklistedTokenRepository.countByExpiresAtAfter(LocalDateTime.now()));
+            reload(true);
+        } catch (Exception e) {
+            // Redis keeps serving whatever it still has, the periodic check retries the load
+            log.error("Could not load revocation snapshot: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${security.blacklist.store.check-interval:30s}",
+            fixedDelayString = "${security.blacklist.store.check-interval:30s}")
+    public void reloadIfRedisLost() {
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(SNAPSHOT_MARKER))) {
+                log.warn("Revocation snapshot marker missing from Redis, reloading blacklist");
+                reload(false);
+            }
+        } catch (Exception e) {
+            log.debug("Could not check revocation snapshot marker: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${security.blacklist.store.cleanup-cron:0 30 3 * * *}")
+    @Transactional
+    public void deleteExpired() {
+        blacklistedTokenRepository.deleteExpiredTokens(LocalDateTime.now());
+    }
+
+    private void reload(boolean fillLocalReplica) {
+        boolean loadRedis = false;
+        try {
+            loadRedis = !Boolean.TRUE.equals(redisTemplate.hasKey(SNAPSHOT_MARKER))
+                    && Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(RELOAD_LOCK, "1", RELOAD_LOCK_TTL));
+        } catch (Exception e) {
+            log.warn("Redis unavailable, revocation snapshot only loaded locally: {}", e.getMessage());
+        }
+        if (!loadRedis && !fillLocalReplica) {
+            return;
+        }
+
+        boolean toRedis = loadRedis;
+        long start = System.nanoTime();
+        long rows;
+        try {
+            rows = streamSnapshot(chunk -> {
+                if (fillLocalReplica) {
+                    chunk.forEach(this::addToLocalReplica);
+                }
+                if (toRedis) {
+                    loadIntoRedis(chunk);
+                }
+            });
+            if (toRedis) {
+                redisTemplate.opsForValue().set(SNAPSHOT_MARKER, Instant.now().toString());
+                snapshotLoad.record(Duration.ofNanos(System.nanoTime() - start));
+            }
+        } finally {
+            if (toRedis) {
+                redisTemplate.delete(RELOAD_LOCK);
+            }
+        }
+        log.info("Loaded {} live revocations in {} ms (redis: {}, local: {})",
+                rows, (System.nanoTime() - start) / 1_000_000, toRedis, fillLocalReplica);
+    }
+
+    // Rows arrive in fetch-size pages from a server-side cursor, memory stays flat at any table size
+    private long streamSnapshot(Consumer<List<BlacklistedToken>> consumer) {
+        Long rows = snapshotTransaction.execute(status -> {
+            List<BlacklistedToken> chunk = new ArrayList<>(pipelineSize);
+            long[] count = {0};
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        SNAPSHOT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                statement.setObject(1, LocalDateTime.now());
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                chunk.add(new BlacklistedToken(null, rs.getString(1),
+                        rs.getTimestamp(3).toLocalDateTime(), rs.getTimestamp(4).toLocalDateTime(),
+                        rs.getString(2), null));
+                count[0]++;
+                if (chunk.size() >= pipelineSize) {
+                    consumer.accept(chunk);
+                    chunk.clear();
+                }
+            });
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk);
+            }
+            return count[0];
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    // One round trip per chunk instead of one per revocation
+    private void loadIntoRedis(List<BlacklistedToken> chunk) {
+        long now = System.currentTimeMillis();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (BlacklistedToken revocation : chunk) {
+                long ttl = toMillis(revocation.getExpiresAt()) - now;
+                if (ttl <= 0) {
+                    continue;
+                }
+                String key;
+                String value;
+                if (revocation.getTokenDigest().startsWith(USER_DIGEST_PREFIX)) {
+                    key = TokenBlacklistService.userRevocationKey(revocation.getUserId());
+                    value = Long.toString(toMillis(revocation.getBlacklistedAt()));
+                } else {
+                    key = TokenBlacklistService.tokenKey(revocation.getUserId(), revocation.getTokenDigest());
+                    value = "blacklisted";
+                }
+                connection.stringCommands().set(key.getBytes(StandardCharsets.UTF_8),
+                        value.getBytes(StandardCharsets.UTF_8),
+                        Expiration.milliseconds(ttl),
+                        RedisStringCommands.SetOption.upsert());
+            }
+            return null;
+        });
+    }
+
+    private void addToLocalReplica(BlacklistedToken revocation) {
+        if (revocation.getTokenDigest().startsWith(USER_DIGEST_PREFIX)) {
+            recentRevocations.addUserRevocation(revocation.getUserId(), toMillis(revocation.getBlacklistedAt()));
+        } else {
+            recentRevocations.add(revocation.getTokenDigest(), toMillis(revocation.getExpiresAt()));
+        }
+    }
+
+    private boolean write(List<BlacklistedToken> batch) {
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, batch, batch.size(), (statement, revocation) -> {
+                statement.setObject(1, UuidV7.generate());
+                statement.setString(2, revocation.getTokenDigest());
+                statement.setTimestamp(3, Timestamp.valueOf(revocation.getBlacklistedAt()));
+                statement.setTimestamp(4, Timestamp.valueOf(revocation.getExpiresAt()));
+                statement.setString(5, revocation.getUserId());
+                statement.setString(6, revocation.getReason());
+            });
+            written.increment(batch.size());
+            return true;
+        } catch (Exception e) {
+            failed.increment(batch.size());
+            log.error("Could not persist {} revocations, retrying on the next flush: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void retain(List<BlacklistedToken> batch) {
+        retry.addAll(batch);
+        retrySize.addAndGet(batch.size());
+        // Redis still holds what is given up here, it is only missing from a cold reload
+        while (retrySize.get() > retryCapacity && retry.poll() != null) {
+            retrySize.decrementAndGet();
+            dropped.increment();
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static Counter writeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("blacklist.store.writes")
+                .description("Revocations written behind to the database by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+}
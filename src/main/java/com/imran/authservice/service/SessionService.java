@@ -0,0 +1,114 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.dto.SessionDto;
+import com.imran.authservice.dto.SessionPageResponse;
+import com.imran.authservice.exception.InvalidRequestException;
+import com.imran.authservice.exception.InvalidTokenException;
+import com.imran.authservice.exception.ResourceNotFoundException;
+import com.imran.authservice.model.RefreshToken;
+import com.imran.authservice.model.User;
+import com.imran.authservice.repository.RefreshTokenRepository;
+import com.imran.authservice.util.RefreshTokens;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SessionService {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TokenBlacklistService tokenBlacklistService;
+
+    @Transactional(readOnly = true)
+    public SessionPageResponse listActiveSessions(User user, String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        LocalDateTime now = LocalDateTime.now();
+
+        // Fetch one extra row to know whether another page exists
+        Limit limit = Limit.of(pageSize + 1);
+        List<SessionDto> sessions;
+        if (cursor == null || cursor.isEmpty()) {
+            sessions = refreshTokenRepository.findActiveSessions(user.getId(), now, limit);
+        } else {
+            String[] position = decodeCursor(cursor);
+            sessions = refreshTokenRepository.findActiveSessionsAfter(
+                    user.getId(), now, LocalDateTime.parse(position[0]), UUID.fromString(position[1]), limit);
+        }
+
+        String nextCursor = null;
+        if (sessions.size() > pageSize) {
+            sessions = sessions.subList(0, pageSize);
+            SessionDto last = sessions.get(pageSize - 1);
+            nextCursor = encodeCursor(last);
+        }
+
+        return SessionPageResponse.builder()
+                .sessions(sessions)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    @Transactional
+    public void revokeSession(User user, UUID sessionId) {
+        int revoked = refreshTokenRepository.revokeSession(sessionId, user.getId(), LocalDateTime.now());
+        if (revoked == 0) {
+            throw new ResourceNotFoundException("Session not found");
+        }
+        // The device's access token carries the session id and stops working with it
+        tokenBlacklistService.blacklistSession(user.getId().toString(), sessionId, "session_revoked");
+        log.debug("Session {} revoked for user {}", sessionId, user.getId());
+    }
+
+    @Transactional
+    public int revokeOtherSessions(User user, String currentRefreshToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHash(RefreshTokens.hash(currentRefreshToken))
+                .filter(token -> !token.isRevoked())
+                .orElseThrow(() -> new InvalidTokenException("Invalid refresh token"));
+
+        // getUser().getId() reads the FK from the proxy without loading the user
+        if (!current.getUser().getId().equals(user.getId())) {
+            throw new InvalidTokenException("Invalid refresh token");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<UUID> others = refreshTokenRepository.findOtherActiveSessionIds(user.getId(), current.getId(), now);
+        int revoked = refreshTokenRepository.revokeOtherSessions(user.getId(), current.getId(), now);
+        others.forEach(sessionId ->
+                tokenBlacklistService.blacklistSession(user.getId().toString(), sessionId, "session_revoked"));
+        log.debug("Revoked {} other sessions for user {}", revoked, user.getId());
+        return revoked;
+    }
+
+    private String encodeCursor(SessionDto last) {
+        String position = last.getExpiryDate() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length != 2) {
+                throw new IllegalArgumentException();
+            }
+            LocalDateTime.parse(position[0]);
+            UUID.fromString(position[1]);
+            return position;
+        } catch (RuntimeException e) {
+            throw new InvalidRequestException("Invalid cursor");
+        }
+    }
+
+}
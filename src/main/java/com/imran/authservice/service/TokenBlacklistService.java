@@ -1,72 +1,240 @@
 package com.imran.authservice.service;
 
+import com.imran.authservice.enums.BlacklistFailureMode;
+import com.imran.authservice.exception.ServiceUnavailableException;
+import com.imran.authservice.security.AccessTokenClaims;
 import com.imran.authservice.security.JwtTokenProvider;
-import lombok.RequiredArgsConstructor;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Revoked access tokens, kept in Redis until they would have expired.
+ * <p>
+ * Lookups run on every authenticated request. They use a dedicated connection with
+ * a tight command timeout behind a circuit breaker. When Redis is slow or down, the
+ * configured failure mode decides: OPEN answers from the node-local replica of
+ * recent revocations, CLOSED treats every token as revoked.
+ * <p>
+ * Keys carry the user id as a hash tag, so a token entry, a session entry and the
+ * user-wide revocation marker always share a cluster slot and are read with one MGET.
+ * A revoked session is stored like a revoked token, under the digest "sid-" + session
+ * id, and covers every access token issued for that session.
+ * Writes go through the primary connection, reads may be served by replicas.
+ * Every revocation is also written behind to the database by {@link RevocationStore}.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-public class TokenBlacklistService {
+public class TokenBlacklistService implements MessageListener {
 
     private final RedisTemplate<String, String> redisTemplate;
+    private final RedisTemplate<String, String> blacklistReadRedisTemplate;
     private final JwtTokenProvider jwtTokenProvider;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final RecentRevocations recentRevocations;
+    private final RevocationStore revocationStore;
+    private final CircuitBreaker circuitBreaker;
+    private final BlacklistFailureMode failureMode;
+    private final Duration accessTokenLifetime;
+    private final Counter fallbacks;
 
-    private static final String BLACKLIST_PREFIX = "blacklist:token:";
+    private static final String BLACKLIST_PREFIX = "blacklist:";
+    private static final String REVOCATION_CHANNEL = "blacklist:revocations";
 
-    // Blacklist a token until it expires
-    public void blacklistToken(String token) {
+    // Bumped on every revocation seen by this node, local or from another replica
+    private final AtomicLong revocationEpoch = new AtomicLong();
+
+    public TokenBlacklistService(@Qualifier("stringRedisTemplate") RedisTemplate<String, String> redisTemplate,
+                                 @Qualifier("blacklistReadRedisTemplate") RedisTemplate<String, String> blacklistReadRedisTemplate,
+                                 JwtTokenProvider jwtTokenProvider,
+                                 RedisMessageListenerContainer listenerContainer,
+                                 RecentRevocations recentRevocations,
+                                 RevocationStore revocationStore,
+                                 CircuitBreakerRegistry circuitBreakerRegistry,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${security.blacklist.failure-mode:OPEN}") BlacklistFailureMode failureMode,
+                                 @Value("${jwt.access-token-expiration:900000}") long accessTokenLifetimeMs) {
+        this.redisTemplate = redisTemplate;
+        this.blacklistReadRedisTemplate = blacklistReadRedisTemplate;
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.listenerContainer = listenerContainer;
+        this.recentRevocations = recentRevocations;
+        this.revocationStore = revocationStore;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("redis-blacklist");
+        this.failureMode = failureMode;
+        this.accessTokenLifetime = Duration.ofMillis(accessTokenLifetimeMs);
+        this.fallbacks = Counter.builder("blacklist.check.fallback")
+                .description("Blacklist checks answered without Redis")
+                .tag("mode", failureMode.name())
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(REVOCATION_CHANNEL));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // Payload is "token:digest:expiresAtMillis" or "user:userId:revokedBeforeMillis",
+        // kept locally for when Redis is unreachable
+        String[] revocation = new String(message.getBody(), StandardCharsets.US_ASCII).split(":");
+        if (revocation.length == 3 && "token".equals(revocation[0])) {
+            recentRevocations.add(revocation[1], Long.parseLong(revocation[2]));
+        } else if (revocation.length == 3 && "user".equals(revocation[0])) {
+            recentRevocations.addUserRevocation(revocation[1], Long.parseLong(revocation[2]));
+        }
+        revocationEpoch.incrementAndGet();
+    }
+
+    // Verified-token caches compare against this to know when to re-check the blacklist
+    public long getRevocationEpoch() {
+        return revocationEpoch.get();
+    }
+
+    // Blacklist a token until it expires; returns once Redis has it, and throws when Redis cannot take it
+    public void blacklistToken(String token, String reason) {
         if (token == null || token.isEmpty()) {
             return;
         }
 
-        try {
-            Date expiration = jwtTokenProvider.getExpirationDateFromToken(token);
-            Date now = new Date();
-
-            // Calculate time until token expires
-            long ttl = expiration.getTime() - now.getTime();
-
-            if (ttl > 0) {
-                // Store token in Redis with TTL equal to remaining token validity
-                String key = BLACKLIST_PREFIX + token;
-                redisTemplate.opsForValue().set(key, "blacklisted", Duration.ofMillis(ttl));
-                log.debug("Token blacklisted: will expire in {} ms", ttl);
-            } else  {
-                log.debug("Token already expired: no need to blacklist");
+        AccessTokenClaims claims = jwtTokenProvider.parseAccessToken(token);
+        if (claims == null || claims.getExpiresAt() == null) {
+            log.debug("Token invalid or already expired: no need to blacklist");
+            return;
+        }
+
+        // Calculate time until token expires
+        long expiresAtMillis = claims.getExpiresAt() * 1000;
+        long ttl = expiresAtMillis - System.currentTimeMillis();
+
+        if (ttl > 0) {
+            try {
+                revoke(claims.getSubject(), RecentRevocations.digest(token), expiresAtMillis, reason);
+            } catch (Exception e) {
+                log.error("Error while blacklisting token: {}", e.getMessage());
+                throw new ServiceUnavailableException("Token could not be revoked, try again");
             }
+            log.debug("Token blacklisted: will expire in {} ms", ttl);
+        } else  {
+            log.debug("Token already expired: no need to blacklist");
+        }
+    }
+
+    // Access tokens of a revoked session, for one access-token lifetime
+    public void blacklistSession(String userId, UUID sessionId, String reason) {
+        try {
+            revoke(userId, sessionDigest(sessionId.toString()), System.currentTimeMillis() + accessTokenLifetime.toMillis(), reason);
+            log.debug("Access tokens of session {} blacklisted", sessionId);
         } catch (Exception e) {
-            log.error("Error while blacklisting token: {}", e.getMessage());
+            log.error("Error while blacklisting session {}: {}", sessionId, e.getMessage());
         }
     }
 
-    // Check if token is blacklisted
-    public boolean isTokenBlacklisted(String token) {
-        if (token == null || token.isEmpty()) {
+    private void revoke(String userId, String digest, long expiresAtMillis, String reason) {
+        recentRevocations.add(digest, expiresAtMillis);
+        revocationEpoch.incrementAndGet();
+        revocationStore.save(RevocationStore.tokenRevocation(digest, userId, expiresAtMillis, reason));
+
+        // Stored in Redis with TTL equal to the remaining token validity
+        redisTemplate.opsForValue().set(tokenKey(userId, digest), "blacklisted",
+                Duration.ofMillis(expiresAtMillis - System.currentTimeMillis()));
+        redisTemplate.convertAndSend(REVOCATION_CHANNEL, "token:" + digest + ":" + expiresAtMillis);
+    }
+
+    // Check if token is blacklisted, claims are the token's already verified claims
+    public boolean isTokenBlacklisted(String token, AccessTokenClaims claims) {
+        if (token == null || token.isEmpty() || claims == null) {
             return false;
         }
 
-        String key = BLACKLIST_PREFIX + token;
-        Boolean exists = redisTemplate.hasKey(key);
-        return exists != null && exists;
+        // Revocations this node has seen need no round trip
+        String digest = RecentRevocations.digest(token);
+        String userId = claims.getSubject();
+        String sessionDigest = claims.getSessionId() == null ? null : sessionDigest(claims.getSessionId());
+        if (recentRevocations.contains(digest, userId, claims.getIssuedAtMillis())
+                || (sessionDigest != null && recentRevocations.contains(sessionDigest))) {
+            return true;
+        }
+
+        // Same hash tag, same slot: one MGET answers all questions even on a cluster
+        List<String> keys = sessionDigest == null
+                ? List.of(tokenKey(userId, digest), userRevocationKey(userId))
+                : List.of(tokenKey(userId, digest), userRevocationKey(userId), tokenKey(userId, sessionDigest));
+        try {
+            List<String> values = circuitBreaker.executeSupplier(
+                    () -> blacklistReadRedisTemplate.opsForValue().multiGet(keys));
+            if (values == null) {
+                return false;
+            }
+            return values.get(0) != null || issuedBefore(claims.getIssuedAtMillis(), values.get(1))
+                    || (values.size() > 2 && values.get(2) != null);
+        } catch (Exception e) {
+            fallbacks.increment();
+            log.debug("Blacklist check without Redis ({}): {}", failureMode, e.getMessage());
+            return failureMode == BlacklistFailureMode.CLOSED;
+        }
     }
 
-    // Blacklist all tokens for a user
-    public void blacklistAllUserTokens(String userId) {
-        // This requires storing user-token mapping in Redis
-        // Implementation depends on your token storage strategy
+    // Blacklist all tokens for a user: everything issued up to now, for one access-token lifetime
+    public void blacklistAllUserTokens(String userId, String reason) {
+        if (userId == null || userId.isEmpty()) {
+            return;
+        }
+
+        // Milliseconds: a token issued right after, e.g. on the re-login that follows, stays valid
+        long revokedBefore = System.currentTimeMillis();
+        recentRevocations.addUserRevocation(userId, revokedBefore);
+        revocationEpoch.incrementAndGet();
+        revocationStore.save(RevocationStore.userRevocation(userId, revokedBefore, accessTokenLifetime, reason));
+
+        try {
+            redisTemplate.opsForValue().set(userRevocationKey(userId), Long.toString(revokedBefore), accessTokenLifetime);
+            redisTemplate.convertAndSend(REVOCATION_CHANNEL, "user:" + userId + ":" + revokedBefore);
+            log.debug("All tokens of user {} issued before {} blacklisted", userId, revokedBefore);
+        } catch (Exception e) {
+            log.error("Error while blacklisting tokens of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private static boolean issuedBefore(Long issuedAtMillis, String revokedBeforeMillis) {
+        return issuedAtMillis != null && revokedBeforeMillis != null
+                && issuedAtMillis <= Long.parseLong(revokedBeforeMillis);
     }
 
+    static String tokenKey(String userId, String digest) {
+        return BLACKLIST_PREFIX + "{" + userId + "}:token:" + digest;
+    }
+
+    private static String sessionDigest(String sessionId) {
+        return "sid-" + sessionId;
+    }
+
+    static String userRevocationKey(String userId) {
+        return BLACKLIST_PREFIX + "{" + userId + "}:revoked-before";
+    }
 
     // Clear all blacklisted tokens (for cleanup)
     public void clearBlacklist() {
         // Use with caution - only for testing or maintenance
-        redisTemplate.delete(redisTemplate.keys(BLACKLIST_PREFIX + "*"));
+        redisTemplate.delete(redisTemplate.keys(BLACKLIST_PREFIX + "{*"));
     }
 
 }
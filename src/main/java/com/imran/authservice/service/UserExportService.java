@@ -0,0 +1,141 @@
+package com.imran.authservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.imran.authservice.dto.UserDto;
+import com.imran.authservice.enums.Role;
+import com.imran.authservice.enums.UserStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Streams the users table as NDJSON in keyset-paginated pages ordered by (created_at, id).
+ * Each page is a short autocommit query, so no transaction or connection is held
+ * while a slow client drains the previous page.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserExportService {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private static final String SELECT_SQL =
+            "SELECT id, email, username, first_name, last_name, status, role, last_login, email_verified, mfa_enabled, created_at " +
+            "FROM users";
+
+    private static final RowMapper<UserDto> USER_DTO_MAPPER = (rs, rowNum) -> UserDto.builder()
+            .id(rs.getObject("id", UUID.class))
+            .email(rs.getString("email"))
+            .username(rs.getString("username"))
+            .firstName(rs.getString("first_name"))
+            .lastName(rs.getString("last_name"))
+            .status(UserStatus.valueOf(rs.getString("status")))
+            .role(Role.valueOf(rs.getString("role")))
+            .lastLogin(toLocalDateTime(rs.getTimestamp("last_login")))
+            .emailVerified(rs.getBoolean("email_verified"))
+            .mfaEnabled(rs.getBoolean("mfa_enabled"))
+            .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public long exportUsers(UserStatus status,
+                            Role role,
+                            LocalDateTime createdFrom,
+                            LocalDateTime createdTo,
+                            OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
+        LocalDateTime afterCreatedAt = null;
+        UUID afterId = null;
+        long exported = 0;
+
+        while (true) {
+            List<UserDto> page = fetchPage(status, role, createdFrom, createdTo, afterCreatedAt, afterId);
+
+            for (UserDto user : page) {
+                writer.write(MAPPER.writeValueAsString(user));
+                writer.write('\n');
+            }
+            // Blocks while the client is slow, which is what throttles the next query
+            writer.flush();
+            exported += page.size();
+
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            UserDto last = page.get(page.size() - 1);
+            afterCreatedAt = last.getCreatedAt();
+            afterId = last.getId();
+        }
+
+        log.info("Exported {} users", exported);
+        return exported;
+    }
+
+    // Equality filters first so (status|role, created_at, id) indexes serve both filter and order
+    private List<UserDto> fetchPage(UserStatus status,
+                                    Role role,
+                                    LocalDateTime createdFrom,
+                                    LocalDateTime createdTo,
+                                    LocalDateTime afterCreatedAt,
+                                    UUID afterId) {
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        List<Object> args = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+
+        if (status != null) {
+            conditions.add("status = ?");
+            args.add(status.name());
+        }
+        if (role != null) {
+            conditions.add("role = ?");
+            args.add(role.name());
+        }
+        if (createdFrom != null) {
+            conditions.add("created_at >= ?");
+            args.add(Timestamp.valueOf(createdFrom));
+        }
+        if (createdTo != null) {
+            conditions.add("created_at < ?");
+            args.add(Timestamp.valueOf(createdTo));
+        }
+        if (afterId != null) {
+            conditions.add("(created_at, id) > (?, ?)");
+            args.add(Timestamp.valueOf(afterCreatedAt));
+            args.add(afterId);
+        }
+
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY created_at, id LIMIT ").append(PAGE_SIZE);
+
+        return jdbcTemplate.query(sql.toString(), USER_DTO_MAPPER, args.toArray());
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+}
@@ -0,0 +1,380 @@
+package com.imran.authservice.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.imran.authservice.dto.UserImportResult;
+import com.imran.authservice.dto.UserImportRow;
+import com.imran.authservice.enums.ImportStatus;
+import com.imran.authservice.enums.Role;
+import com.imran.authservice.model.User;
+import com.imran.authservice.util.UuidV7;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Streams NDJSON or CSV user records into the users table chunk by chunk.
+ * Only one chunk is held in memory; each chunk is conflict-checked with one query,
+ * hashed in parallel and inserted with a single multi-row statement.
+ */
+@Service
+@Slf4j
+public class UserImportService {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+$");
+
+    private static final String EXISTING_SQL =
+            "SELECT email, lower(username) AS username FROM users WHERE lower(email) = ANY(?) OR lower(username) = ANY(?)";
+
+    // One round trip per chunk; rows skipped by ON CONFLICT are missing from RETURNING
+    private static final String INSERT_SQL =
+            "INSERT INTO users (id, email, username, password, first_name, last_name, role, " +
+            "status, failed_login_attempts, mfa_enabled, created_at, updated_at) " +
+            "SELECT u.id, u.email, u.username, u.password, u.first_name, u.last_name, u.role, " +
+            "'ACTIVE', 0, false, now(), now() " +
+            "FROM unnest(?::uuid[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[]) " +
+            "AS u(id, email, username, password, first_name, last_name, role) " +
+            "ON CONFLICT DO NOTHING RETURNING email";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int chunkSize;
+    private final ThreadPoolExecutor hashingExecutor;
+
+    public UserImportService(JdbcTemplate jdbcTemplate,
+                             PasswordEncoder passwordEncoder,
+                             EntityManagerFactory entityManagerFactory,
+                             @Value("${import.chunk-size:1000}") int chunkSize,
+                             @Value("${import.hashing-threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int hashingThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.entityManagerFactory = entityManagerFactory;
+        this.chunkSize = chunkSize;
+        // Bounded pool and queue, the importing thread runs hashes itself when both are full
+        this.hashingExecutor = new ThreadPoolExecutor(hashingThreads, hashingThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(chunkSize), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingExecutor.shutdown();
+    }
+
+    // Only a SUPER_ADMIN caller may create ADMIN, SUPER_ADMIN or SERVICE accounts
+    public void importUsers(InputStream input, boolean csv, Role callerRole, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
+        String[] csvHeader = null;
+        if (csv) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                writer.flush();
+                return;
+            }
+            csvHeader = parseCsvLine(headerLine);
+        }
+
+        long lineNumber = csv ? 1 : 0;
+        long created = 0;
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.add(parseRow(line, lineNumber, csvHeader, callerRole));
+
+            if (chunk.size() == chunkSize) {
+                created += processChunk(chunk, writer);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created += processChunk(chunk, writer);
+        }
+        writer.flush();
+
+        // Native inserts bypass Hibernate, drop cached negative username lookups
+        entityManagerFactory.unwrap(SessionFactory.class).getCache()
+                .evictQueryRegion(User.USERNAME_QUERY_CACHE_REGION);
+        log.info("Bulk import finished: {} lines, {} users created", lineNumber, created);
+    }
+
+    private long processChunk(List<PendingRow> chunk, Writer writer) throws IOException {
+        List<PendingRow> candidates = new ArrayList<>(chunk.size());
+        Set<String> seenEmails = new HashSet<>();
+        Set<String> seenUsernames = new HashSet<>();
+
+        for (PendingRow row : chunk) {
+            if (row.status != null) {
+                continue;
+            }
+            if (!seenEmails.add(row.email) || !seenUsernames.add(row.username.toLowerCase(Locale.ROOT))) {
+                row.reject(ImportStatus.CONFLICT, "Duplicate email or username within the import");
+                continue;
+            }
+            candidates.add(row);
+        }
+
+        rejectExisting(candidates, seenEmails, seenUsernames);
+        hashPasswords(candidates);
+        long created = insert(candidates);
+
+        for (PendingRow row : chunk) {
+            writer.write(MAPPER.writeValueAsString(row.toResult()));
+            writer.write('\n');
+        }
+        writer.flush();
+        return created;
+    }
+
+    private void rejectExisting(List<PendingRow> candidates, Set<String> emails, Set<String> usernames) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Set<String> existingEmails = new HashSet<>();
+        Set<String> existingUsernames = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXISTING_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", emails.toArray()));
+            ps.setArray(2, con.createArrayOf("varchar", usernames.toArray()));
+            return ps;
+        }, rs -> {
+            existingEmails.add(rs.getString("email"));
+            existingUsernames.add(rs.getString("username"));
+        });
+
+        for (PendingRow row : candidates) {
+            if (existingEmails.contains(row.email) || existingUsernames.contains(row.username.toLowerCase(Locale.ROOT))) {
+                row.reject(ImportStatus.CONFLICT, "Email or username already exists");
+            }
+        }
+    }
+
+    private void hashPasswords(List<PendingRow> candidates) {
+        List<CompletableFuture<Void>> hashes = new ArrayList<>();
+        for (PendingRow row : candidates) {
+            if (row.status == null && row.passwordHash == null) {
+                hashes.add(CompletableFuture.runAsync(() -> row.passwordHash = passwordEncoder.encode(row.password),
+                        hashingExecutor));
+            }
+        }
+        CompletableFuture.allOf(hashes.toArray(new CompletableFuture[0])).join();
+    }
+
+    private long insert(List<PendingRow> candidates) {
+        List<PendingRow> rows = candidates.stream().filter(row -> row.status == null).toList();
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Set<String> inserted = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_SQL);
+            ps.setArray(1, textArray(con, rows, row -> UuidV7.generate().toString()));
+            ps.setArray(2, textArray(con, rows, row -> row.email));
+            ps.setArray(3, textArray(con, rows, row -> row.username));
+            ps.setArray(4, textArray(con, rows, row -> row.passwordHash));
+            ps.setArray(5, textArray(con, rows, row -> row.firstName));
+            ps.setArray(6, textArray(con, rows, row -> row.lastName));
+            ps.setArray(7, textArray(con, rows, row -> row.role.name()));
+            return ps;
+        }, rs -> {
+            inserted.add(rs.getString(1));
+        });
+
+        for (PendingRow row : rows) {
+            if (inserted.contains(row.email)) {
+                row.status = ImportStatus.CREATED;
+            } else {
+                // Lost a race with a concurrent registration
+                row.reject(ImportStatus.CONFLICT, "Email or username already exists");
+            }
+        }
+        return inserted.size();
+    }
+
+    private static Array textArray(Connection con, List<PendingRow> rows,
+                                   Function<PendingRow, String> column) throws SQLException {
+        String[] values = new String[rows.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = column.apply(rows.get(i));
+        }
+        return con.createArrayOf("varchar", values);
+    }
+
+    private PendingRow parseRow(String line, long lineNumber, String[] csvHeader, Role callerRole) {
+        UserImportRow row;
+        try {
+            row = csvHeader == null ? MAPPER.readValue(line, UserImportRow.class) : toRow(csvHeader, parseCsvLine(line));
+        } catch (Exception e) {
+            return PendingRow.invalid(lineNumber, null, "Unreadable record");
+        }
+
+        String email = row.getEmail() == null ? null : User.normalizeEmail(row.getEmail());
+        String username = row.getUsername() == null ? null : row.getUsername().trim();
+
+        if (email == null || !EMAIL.matcher(email).matches()) {
+            return PendingRow.invalid(lineNumber, email, "Invalid email");
+        }
+        if (username == null || username.length() < 3 || username.length() > 50) {
+            return PendingRow.invalid(lineNumber, email, "Username must be between 3 and 50 characters");
+        }
+
+        String passwordHash = row.getPasswordHash();
+        if (passwordHash != null && !BCRYPT_HASH.matcher(passwordHash).matches()) {
+            return PendingRow.invalid(lineNumber, email, "passwordHash must be a BCrypt hash");
+        }
+        if (passwordHash == null && (row.getPassword() == null || row.getPassword().length() < 8)) {
+            return PendingRow.invalid(lineNumber, email, "Password must be at least 8 characters");
+        }
+
+        Role role;
+        try {
+            role = row.getRole() == null || row.getRole().isBlank()
+                    ? Role.USER
+                    : Role.valueOf(row.getRole().trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return PendingRow.invalid(lineNumber, email, "Unknown role");
+        }
+        if (role != Role.USER && callerRole != Role.SUPER_ADMIN) {
+            return PendingRow.invalid(lineNumber, email, "Role not allowed for this caller");
+        }
+
+        PendingRow pending = new PendingRow(lineNumber, email);
+        pending.username = username;
+        pending.password = row.getPassword();
+        pending.passwordHash = passwordHash;
+        pending.firstName = row.getFirstName();
+        pending.lastName = row.getLastName();
+        pending.role = role;
+        return pending;
+    }
+
+    private static UserImportRow toRow(String[] header, String[] values) {
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.length && i < values.length; i++) {
+            fields.put(header[i].trim(), values[i].isEmpty() ? null : values[i]);
+        }
+
+        UserImportRow row = new UserImportRow();
+        row.setEmail(fields.get("email"));
+        row.setUsername(fields.get("username"));
+        row.setPassword(fields.get("password"));
+        row.setPasswordHash(fields.get("passwordHash"));
+        row.setFirstName(fields.get("firstName"));
+        row.setLastName(fields.get("lastName"));
+        row.setRole(fields.get("role"));
+        return row;
+    }
+
+    // RFC 4180 fields on a single line: commas, double quotes and "" escapes
+    private static String[] parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    private static final class PendingRow {
+
+        private final long line;
+        private final String email;
+        private String username;
+        private String password;
+        private volatile String passwordHash;
+        private String firstName;
+        private String lastName;
+        private Role role;
+        private ImportStatus status;
+        private String message;
+
+        PendingRow(long line, String email) {
+            this.line = line;
+            this.email = email;
+        }
+
+        static PendingRow invalid(long line, String email, String message) {
+            PendingRow row = new PendingRow(line, email);
+            row.reject(ImportStatus.INVALID, message);
+            return row;
+        }
+
+        void reject(ImportStatus status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+
+        UserImportResult toResult() {
+            return UserImportResult.builder()
+                    .line(line)
+                    .email(email)
+                    .status(status == null ? ImportStatus.FAILED : status)
+                    .message(message)
+                    .build();
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.imran.authservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.imran.authservice.dto.UserLookupRequest;
+import com.imran.authservice.dto.UserSummaryDto;
+import com.imran.authservice.enums.Role;
+import com.imran.authservice.event.UserModifiedEvent;
+import com.imran.authservice.exception.InvalidRequestException;
+import com.imran.authservice.model.User;
+import com.imran.authservice.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Resolves batches of user ids or emails to display fields with at most one
+ * projection query per key type. Hits and misses are cached in process, so a page
+ * that fans out to the same few hundred users is mostly answered from memory.
+ * <p>
+ * Writes on this node invalidate their entries right away. Other nodes see them
+ * after cache-ttl, and a user created after a miss after negative-ttl. An email
+ * only resolves through the cache while the cached user still has that email.
+ * <p>
+ * Resolving emails to ids is reserved to admins; service accounts look up ids.
+ */
+@Service
+@Slf4j
+public class UserLookupService {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final UserRepository userRepository;
+    private final int maxBatchSize;
+
+    private final Cache<UUID, UserSummaryDto> byId;
+    private final Cache<String, UUID> idByEmail;
+    private final Cache<String, Boolean> unknown;
+
+    public UserLookupService(UserRepository userRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${user-lookup.max-batch-size:500}") int maxBatchSize,
+                             @Value("${user-lookup.maximum-size:100000}") long maximumSize,
+                             @Value("${user-lookup.cache-ttl:5m}") Duration cacheTtl,
+                             @Value("${user-lookup.negative-ttl:1m}") Duration negativeTtl) {
+        this.userRepository = userRepository;
+        this.maxBatchSize = maxBatchSize;
+        this.byId = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(cacheTtl).recordStats().build();
+        this.idByEmail = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(cacheTtl).build();
+        this.unknown = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(negativeTtl).recordStats().build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "user-lookup");
+        CaffeineCacheMetrics.monitor(meterRegistry, unknown, "user-lookup-unknown");
+    }
+
+    // One NDJSON line per distinct key in request order; unknown keys come back with only the key set
+    public void lookup(UserLookupRequest request, Role callerRole, OutputStream output) throws IOException {
+        List<UserSummaryDto> summaries = resolve(request, callerRole);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        for (UserSummaryDto summary : summaries) {
+            writer.write(MAPPER.writeValueAsString(summary));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    public List<UserSummaryDto> resolve(UserLookupRequest request, Role callerRole) {
+        Set<UUID> ids = new LinkedHashSet<>();
+        if (request.getIds() != null) {
+            request.getIds().stream().filter(Objects::nonNull).forEach(ids::add);
+        }
+        Set<String> emails = new LinkedHashSet<>();
+        if (request.getEmails() != null) {
+            request.getEmails().stream().filter(StringUtils::hasText).map(User::normalizeEmail).forEach(emails::add);
+        }
+        if (!emails.isEmpty() && callerRole != Role.ADMIN && callerRole != Role.SUPER_ADMIN) {
+            throw new AccessDeniedException("Looking up users by email requires an admin role");
+        }
+        if (ids.size() + emails.size() > maxBatchSize) {
+            throw new InvalidRequestException("At most " + maxBatchSize + " ids and emails per lookup");
+        }
+
+        // Collected here rather than re-read from the caches, which may evict in between
+        Map<UUID, UserSummaryDto> resolved = new HashMap<>();
+        Map<String, UUID> emailIds = new HashMap<>();
+
+        List<String> missingEmails = new ArrayList<>();
+        for (String email : emails) {
+            UUID id = idByEmail.getIfPresent(email);
+            UserSummaryDto summary = id == null ? null : byId.getIfPresent(id);
+            if (summary != null && !email.equals(summary.getEmail())) {
+                // The user changed email after this mapping was cached
+                idByEmail.invalidate(email);
+                summary = null;
+            }
+            if (summary != null) {
+                resolved.put(id, summary);
+                emailIds.put(email, id);
+            } else if (unknown.getIfPresent("email:" + email) == null) {
+                missingEmails.add(email);
+            }
+        }
+        if (!missingEmails.isEmpty()) {
+            for (UserSummaryDto summary : userRepository.findSummariesByEmailIn(missingEmails)) {
+                cache(summary);
+                resolved.put(summary.getId(), summary);
+                emailIds.put(summary.getEmail(), summary.getId());
+            }
+            for (String email : missingEmails) {
+                if (!emailIds.containsKey(email)) {
+                    unknown.put("email:" + email, Boolean.TRUE);
+                }
+            }
+        }
+
+        List<UUID> missingIds = new ArrayList<>();
+        for (UUID id : ids) {
+            UserSummaryDto summary = resolved.containsKey(id) ? resolved.get(id) : byId.getIfPresent(id);
+            if (summary != null) {
+                resolved.put(id, summary);
+            } else if (unknown.getIfPresent("id:" + id) == null) {
+                missingIds.add(id);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            List<UserSummaryDto> loaded = userRepository.findSummariesByIdIn(missingIds);
+            for (UserSummaryDto summary : loaded) {
+                cache(summary);
+                resolved.put(summary.getId(), summary);
+            }
+            for (UUID id : missingIds) {
+                if (!resolved.containsKey(id)) {
+                    unknown.put("id:" + id, Boolean.TRUE);
+                }
+            }
+            log.debug("Loaded {} of {} uncached users", loaded.size(), missingIds.size());
+        }
+
+        List<UserSummaryDto> results = new ArrayList<>(ids.size() + emails.size());
+        for (UUID id : ids) {
+            UserSummaryDto summary = resolved.get(id);
+            results.add(summary == null
+                    ? UserSummaryDto.builder().id(id).build()
+                    : summary.toBuilder().email(null).build());
+        }
+        for (String email : emails) {
+            UUID id = emailIds.get(email);
+            results.add(id == null ? UserSummaryDto.builder().email(email).build() : resolved.get(id));
+        }
+        return results;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserModified(UserModifiedEvent event) {
+        // Mappings of a user byId no longer holds are caught by the email check in resolve
+        UserSummaryDto cached = byId.getIfPresent(event.getUserId());
+        if (cached != null) {
+            idByEmail.invalidate(cached.getEmail());
+        }
+        byId.invalidate(event.getUserId());
+        unknown.invalidate("id:" + event.getUserId());
+    }
+
+    private void cache(UserSummaryDto summary) {
+        byId.put(summary.getId(), summary);
+        idByEmail.put(summary.getEmail(), summary.getId());
+    }
+
+}
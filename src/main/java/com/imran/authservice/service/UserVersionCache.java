@@ -0,0 +1,91 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.event.UserModifiedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Last known updatedAt of each user, in epoch millis, shared through Redis so any
+ * node can answer a conditional GET of the profile without loading the row.
+ * <p>
+ * Every committed write to the user stores the version read back from the primary,
+ * so a replica that has not replayed the write yet cannot put an older one in its
+ * place. Profile reads only fill the entry when they were served by the primary.
+ * The TTL bounds how long a version from two writes racing each other can survive.
+ */
+@Component
+@Slf4j
+public class UserVersionCache {
+
+    private static final String VERSION_PREFIX = "user:version:";
+    private static final String UPDATED_AT_SQL = "SELECT updated_at FROM users WHERE id = ?";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+
+    public UserVersionCache(@Qualifier("stringRedisTemplate") RedisTemplate<String, String> redisTemplate,
+                            JdbcTemplate jdbcTemplate,
+                            @Value("${cache.user-version-ttl:10m}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+    }
+
+    // Null when unknown or Redis is unavailable, callers then read the database
+    public Long get(UUID userId) {
+        try {
+            String version = redisTemplate.opsForValue().get(VERSION_PREFIX + userId);
+            return version == null ? null : Long.parseLong(version);
+        } catch (Exception e) {
+            log.debug("Could not read user version: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public void put(UUID userId, long version) {
+        try {
+            redisTemplate.opsForValue().set(VERSION_PREFIX + userId, Long.toString(version), ttl);
+        } catch (Exception e) {
+            log.debug("Could not store user version: {}", e.getMessage());
+        }
+    }
+
+    // Runs after commit outside any read-only transaction, so the query goes to the primary
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserModified(UserModifiedEvent event) {
+        String key = VERSION_PREFIX + event.getUserId();
+        try {
+            List<LocalDateTime> updatedAt = jdbcTemplate.query(UPDATED_AT_SQL,
+                    (rs, rowNum) -> rs.getObject(1, LocalDateTime.class), event.getUserId());
+            if (updatedAt.isEmpty()) {
+                redisTemplate.delete(key);
+            } else {
+                redisTemplate.opsForValue().set(key, Long.toString(versionOf(updatedAt.get(0))), ttl);
+            }
+        } catch (Exception e) {
+            log.warn("Could not refresh version of user {}: {}", event.getUserId(), e.getMessage());
+            try {
+                redisTemplate.delete(key);
+            } catch (Exception ignored) {
+                // Redis is down, the entry lapses with its TTL
+            }
+        }
+    }
+
+    public static long versionOf(LocalDateTime updatedAt) {
+        return updatedAt == null ? 0 : updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+}
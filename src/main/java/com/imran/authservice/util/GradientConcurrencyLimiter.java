@@ -0,0 +1,111 @@
+package com.imran.authservice.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that follows measured latency, after the gradient algorithm of
+ * Netflix's concurrency-limits.
+ * <p>
+ * A long-window average of request latency stands in for the no-load latency. As
+ * long as recent latency stays within the tolerance of it the limit grows by a
+ * queue allowance of sqrt(limit); once requests start queueing (in the pool, in
+ * Postgres) the ratio of the two shrinks the limit proportionally, never by more
+ * than half per sample. Failed and timed out requests back the limit off directly.
+ * Callers ask for a share of the limit, so lower priorities run out of room first.
+ */
+public class GradientConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW_ALPHA = 2.0 / (10 + 1);
+    private static final double LONG_WINDOW_ALPHA = 2.0 / (600 + 1);
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double estimatedLimit;
+    // Guarded by this
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    public GradientConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double rttTolerance) {
+        this.estimatedLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rttTolerance = rttTolerance;
+    }
+
+    /**
+     * Takes a slot if fewer than limitShare * limit requests are in flight.
+     * Every successful acquire must be paired with {@link #release}.
+     */
+    public boolean tryAcquire(double limitShare) {
+        int allowed = Math.max(1, (int) (getLimit() * limitShare));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees the slot and feeds the sample back. inFlightAtStart is what
+     * {@link #getInFlight} returned right after the acquire.
+     */
+    public void release(long rttNanos, int inFlightAtStart, boolean dropped) {
+        inFlight.decrementAndGet();
+        if (dropped) {
+            onDropped();
+        } else {
+            onSample(rttNanos, inFlightAtStart);
+        }
+    }
+
+    public int getLimit() {
+        return (int) estimatedLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) * SHORT_WINDOW_ALPHA;
+        longRttNanos += (rttNanos - longRttNanos) * LONG_WINDOW_ALPHA;
+
+        // After a long overload the baseline is inflated, pull it down so the limit can recover
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        // Latency says nothing about a limit the traffic does not reach
+        if (inFlightAtStart < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / shortRttNanos));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = clamp(newLimit);
+    }
+
+    private synchronized void onDropped() {
+        estimatedLimit = clamp(estimatedLimit * BACKOFF_RATIO);
+    }
+
+    private double clamp(double limit) {
+        return Math.max(minLimit, Math.min(maxLimit, limit));
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.imran.authservice.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Refresh tokens are random base64url values; only their SHA-256 is stored, so
+ * refresh_tokens is looked up by a fixed 32-byte key whatever the token looks like.
+ */
+public final class RefreshTokens {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private RefreshTokens() {
+    }
+
+    public static String generate() {
+        byte[] token = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(token);
+        return ENCODER.encodeToString(token);
+    }
+
+    // Also matches the hashes V6 computed for the JWT refresh tokens issued before
+    public static byte[] hash(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String encode(byte[] hash) {
+        return ENCODER.encodeToString(hash);
+    }
+
+    public static byte[] decode(String encodedHash) {
+        return Base64.getUrlDecoder().decode(encodedHash);
+    }
+
+}
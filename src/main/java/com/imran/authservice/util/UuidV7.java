@@ -0,0 +1,28 @@
+package com.imran.authservice.util;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Time-ordered UUIDs (RFC 9562 version 7) for rows written outside Hibernate,
+ * matching what {@code @UuidGenerator(style = VERSION_7)} assigns to entities.
+ */
+public final class UuidV7 {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private UuidV7() {
+    }
+
+    public static UUID generate() {
+        long timestamp = System.currentTimeMillis();
+        long randA = RANDOM.nextInt(1 << 12);
+        long randB = RANDOM.nextLong();
+
+        // 48-bit unix millis | version 7 | 12 random bits, then variant 10 | 62 random bits
+        long msb = (timestamp << 16) | (0x7L << 12) | randA;
+        long lsb = (randB & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+}
@@ -0,0 +1,4 @@
+-- Service accounts for service-to-service calls such as the bulk user lookup
+ALTER TABLE users DROP CONSTRAINT IF EXISTS users_role_check;
+ALTER TABLE users ADD CONSTRAINT users_role_check
+    CHECK (role IN ('USER', 'ADMIN', 'SUPER_ADMIN', 'SERVICE'));
@@ -0,0 +1,57 @@
+-- Schema as previously generated by ddl-auto: update. Existing databases are
+-- baselined at this version and skip it, fresh databases start from here.
+
+CREATE TABLE IF NOT EXISTS users (
+    id                              uuid         NOT NULL,
+    email                           varchar(255) NOT NULL,
+    username                        varchar(255) NOT NULL,
+    password                        varchar(255) NOT NULL,
+    first_name                      varchar(255),
+    last_name                       varchar(255),
+    status                          varchar(255) NOT NULL
+        CHECK (status IN ('PENDING', 'ACTIVE', 'SUSPENDED', 'DELETED')),
+    role                            varchar(255) NOT NULL
+        CHECK (role IN ('USER', 'ADMIN', 'SUPER_ADMIN')),
+    email_verification_token        varchar(255),
+    email_verification_token_expiry timestamp(6),
+    refresh_token                   varchar(255),
+    refresh_token_expiry            timestamp(6),
+    last_login                      timestamp(6),
+    failed_login_attempts           integer,
+    locked_until                    timestamp(6),
+    mfa_enabled                     boolean      NOT NULL,
+    mfa_secret                      varchar(255),
+    created_at                      timestamp(6),
+    updated_at                      timestamp(6),
+    CONSTRAINT users_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email),
+    CONSTRAINT uk_users_username UNIQUE (username)
+);
+
+CREATE INDEX IF NOT EXISTS idx_email ON users (email);
+CREATE INDEX IF NOT EXISTS idx_username ON users (username);
+
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id          uuid         NOT NULL,
+    user_id     uuid         NOT NULL,
+    token       varchar(255) NOT NULL,
+    expiry_date timestamp(6) NOT NULL,
+    ip_address  varchar(255) NOT NULL,
+    user_agent  varchar(255),
+    revoked     boolean      NOT NULL,
+    revoked_at  timestamp(6),
+    CONSTRAINT refresh_tokens_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_refresh_tokens_token UNIQUE (token),
+    CONSTRAINT fk_refresh_tokens_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS blacklisted_tokens (
+    id             uuid         NOT NULL,
+    token          varchar(500) NOT NULL,
+    blacklisted_at timestamp(6) NOT NULL,
+    expires_at     timestamp(6) NOT NULL,
+    user_id        varchar(255) NOT NULL,
+    reason         varchar(255),
+    CONSTRAINT blacklisted_tokens_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_blacklisted_tokens_token UNIQUE (token)
+);
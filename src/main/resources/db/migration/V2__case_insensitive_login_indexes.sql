@@ -0,0 +1,33 @@
+-- Emails are stored lowercase from now on. Fails loudly if two accounts only
+-- differ in case, those have to be merged by hand before migrating.
+UPDATE users SET email = lower(email) WHERE email <> lower(email);
+
+-- Plain indexes that duplicated the unique constraints
+DROP INDEX IF EXISTS idx_email;
+DROP INDEX IF EXISTS idx_username;
+
+-- Case-sensitive unique constraints, under whatever name ddl-auto generated them
+DO $$
+DECLARE
+    c record;
+BEGIN
+    FOR c IN
+        SELECT con.conname
+        FROM pg_constraint con
+        JOIN pg_attribute a ON a.attrelid = con.conrelid AND a.attnum = con.conkey[1]
+        WHERE con.conrelid = 'users'::regclass
+          AND con.contype = 'u'
+          AND cardinality(con.conkey) = 1
+          AND a.attname IN ('email', 'username')
+    LOOP
+        EXECUTE format('ALTER TABLE users DROP CONSTRAINT %I', c.conname);
+    END LOOP;
+END $$;
+
+-- Login by email (natural id load) and by username
+CREATE UNIQUE INDEX uk_users_email_lower ON users (lower(email));
+CREATE UNIQUE INDEX uk_users_username_lower ON users (lower(username));
+
+-- refresh_tokens.token is served by its unique constraint and user_id by the leading
+-- column of idx_refresh_tokens_user_active (V8); expired token cleanup scans by expiry
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expiry_date ON refresh_tokens (expiry_date);
@@ -0,0 +1,6 @@
+-- Verification and reset tokens now live in Redis, hashed and with native TTL.
+-- Tokens still pending in these columns are dropped, users can request new ones.
+ALTER TABLE users ADD COLUMN email_verified boolean NOT NULL DEFAULT false;
+
+ALTER TABLE users DROP COLUMN email_verification_token;
+ALTER TABLE users DROP COLUMN email_verification_token_expiry;
@@ -0,0 +1,30 @@
+-- Append-only login audit trail, written in COPY batches by AuditService.
+-- Monthly range partitions keep inserts on a small hot partition and make
+-- retention a matter of dropping old partitions.
+CREATE TABLE login_audit (
+    occurred_at timestamptz  NOT NULL,
+    event_type  varchar(32)  NOT NULL,
+    user_id     uuid,
+    principal   varchar(255),
+    ip_address  varchar(64),
+    user_agent  varchar(512)
+) PARTITION BY RANGE (occurred_at);
+
+CREATE INDEX idx_login_audit_user_occurred_at ON login_audit (user_id, occurred_at);
+
+-- Catches rows outside the pre-created months instead of failing the batch
+CREATE TABLE login_audit_default PARTITION OF login_audit DEFAULT;
+
+-- Current and next month, the application creates later months ahead of time
+DO $$
+DECLARE
+    month_start date;
+BEGIN
+    FOR i IN 0..1 LOOP
+        month_start := (date_trunc('month', now() AT TIME ZONE 'UTC') + make_interval(months => i))::date;
+        EXECUTE format(
+                'CREATE TABLE IF NOT EXISTS login_audit_y%sm%s PARTITION OF login_audit FOR VALUES FROM (%L) TO (%L)',
+                to_char(month_start, 'YYYY'), to_char(month_start, 'MM'),
+                month_start || ' 00:00:00+00', (month_start + interval '1 month')::date || ' 00:00:00+00');
+    END LOOP;
+END $$;
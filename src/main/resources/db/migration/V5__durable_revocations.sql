@@ -0,0 +1,29 @@
+-- Revocations are stored by token digest, the same SHA-256 the Redis keys use, so the
+-- table stays compact and a snapshot can be loaded back into Redis as is.
+-- Nothing wrote raw tokens here so far, any stray rows are dropped.
+DELETE FROM blacklisted_tokens;
+
+-- Unique constraint on token, under whatever name ddl-auto generated it
+DO $$
+DECLARE
+    c record;
+BEGIN
+    FOR c IN
+        SELECT con.conname
+        FROM pg_constraint con
+        JOIN pg_attribute a ON a.attrelid = con.conrelid AND a.attnum = con.conkey[1]
+        WHERE con.conrelid = 'blacklisted_tokens'::regclass
+          AND con.contype = 'u'
+          AND cardinality(con.conkey) = 1
+          AND a.attname = 'token'
+    LOOP
+        EXECUTE format('ALTER TABLE blacklisted_tokens DROP CONSTRAINT %I', c.conname);
+    END LOOP;
+END $$;
+
+ALTER TABLE blacklisted_tokens RENAME COLUMN token TO token_digest;
+ALTER TABLE blacklisted_tokens ALTER COLUMN token_digest TYPE varchar(64);
+ALTER TABLE blacklisted_tokens ADD CONSTRAINT uk_blacklisted_tokens_token_digest UNIQUE (token_digest);
+
+-- Snapshot reads and cleanup both range over live rows
+CREATE INDEX idx_blacklisted_tokens_expires_at ON blacklisted_tokens (expires_at);
@@ -0,0 +1,26 @@
+-- Refresh tokens are looked up by the SHA-256 of the presented value. The JWT refresh
+-- tokens issued so far are hashed in place, so they keep working until their next
+-- refresh, which rotates them to an opaque token.
+ALTER TABLE refresh_tokens ADD COLUMN token_hash bytea;
+UPDATE refresh_tokens SET token_hash = sha256(convert_to(token, 'UTF8'));
+ALTER TABLE refresh_tokens ALTER COLUMN token_hash SET NOT NULL;
+
+-- Unique constraint on token, under whatever name ddl-auto generated it
+DO $$
+DECLARE
+    c record;
+BEGIN
+    FOR c IN
+        SELECT con.conname
+        FROM pg_constraint con
+        JOIN pg_attribute a ON a.attrelid = con.conrelid AND a.attnum = con.conkey[1]
+        WHERE con.conrelid = 'refresh_tokens'::regclass
+          AND con.contype = 'u'
+          AND cardinality(con.conkey) = 1
+          AND a.attname = 'token'
+    LOOP
+        EXECUTE format('ALTER TABLE refresh_tokens DROP CONSTRAINT %I', c.conname);
+    END LOOP;
+END $$;
+ALTER TABLE refresh_tokens DROP COLUMN token;
+ALTER TABLE refresh_tokens ADD CONSTRAINT uk_refresh_tokens_token_hash UNIQUE (token_hash);
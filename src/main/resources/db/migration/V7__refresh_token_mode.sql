@@ -0,0 +1,4 @@
+-- The access token kind a session was opened with, so a refresh issues the same kind.
+-- Sessions opened before this migration were all JWT sessions.
+ALTER TABLE refresh_tokens ADD COLUMN token_mode varchar(16) NOT NULL DEFAULT 'JWT'
+    CHECK (token_mode IN ('JWT', 'OPAQUE'));
@@ -0,0 +1,6 @@
+-- Keyset pagination for the admin user listing and export, and the active-session
+-- lookup. Databases baselined at V1 never ran V1, so the indexes live here.
+CREATE INDEX IF NOT EXISTS idx_users_created_at ON users (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_users_status_created_at ON users (status, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_users_role_created_at ON users (role, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user_active ON refresh_tokens (user_id, revoked, expiry_date, id) INCLUDE (ip_address, user_agent);
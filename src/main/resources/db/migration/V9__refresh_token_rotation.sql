@@ -0,0 +1,3 @@
+-- Tells rotated refresh tokens, whose reuse means theft, from ones revoked by logout,
+-- a session revoke or a password reset. Rows revoked before this count as not rotated.
+ALTER TABLE refresh_tokens ADD COLUMN rotated boolean NOT NULL DEFAULT false;
@@ -0,0 +1,64 @@
+package com.imran.authservice.config;
+
+import com.imran.authservice.enums.RequestPriority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitFilterTest {
+
+    private static final String CONTEXT_PATH = "/auth-service";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConcurrencyLimitFilter filter =
+            new ConcurrencyLimitFilter(meterRegistry, true, 20, 5, 200, 1.5, 1);
+
+    private static MockHttpServletRequest request(String servletPath) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", CONTEXT_PATH + servletPath);
+        request.setContextPath(CONTEXT_PATH);
+        request.setServletPath(servletPath);
+        return request;
+    }
+
+    @Test
+    void actuatorBehindContextPathIsNeverShed() {
+        assertThat(filter.shouldNotFilter(request("/actuator/health/liveness"))).isTrue();
+        assertThat(filter.shouldNotFilter(request("/actuator/prometheus"))).isTrue();
+    }
+
+    @Test
+    void applicationEndpointsBehindContextPathAreLimited() {
+        MockHttpServletRequest login = request("/api/v1/auth/login");
+
+        assertThat(filter.shouldNotFilter(login)).isFalse();
+        assertThat(ConcurrencyLimitFilter.priorityOf(login)).isEqualTo(RequestPriority.LOGIN);
+    }
+
+    @Test
+    void streamingExportStaysOutOfTheAdaptiveLimit() throws Exception {
+        AtomicReference<Double> inFlightDuringExport = new AtomicReference<>();
+
+        filter.doFilter(request("/api/v1/admin/users/export"), new MockHttpServletResponse(),
+                (req, res) -> inFlightDuringExport.set(meterRegistry.get("http.concurrency.in.flight").gauge().value()));
+
+        assertThat(inFlightDuringExport.get()).isZero();
+    }
+
+    @Test
+    void streamingRequestsBeyondTheirSlotsAreShed() throws Exception {
+        MockHttpServletResponse second = new MockHttpServletResponse();
+
+        filter.doFilter(request("/api/v1/admin/users/import"), new MockHttpServletResponse(),
+                (req, res) -> filter.doFilter(request("/api/v1/admin/users/export"), second, (r, s) -> { }));
+
+        assertThat(second.getStatus()).isEqualTo(503);
+        assertThat(meterRegistry.get("http.concurrency.rejected").tag("priority", "STREAMING").counter().count())
+                .isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.imran.authservice.config;
+
+import com.imran.authservice.event.UserModifiedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ReplicaLagTrackerTest {
+
+    private static final UUID USER_ID = UUID.fromString("0190a5f0-0000-7000-8000-000000000008");
+    private static final UUID OTHER_USER_ID = UUID.fromString("0190a5f0-0000-7000-8000-000000000009");
+
+    private final JdbcTemplate primary = mock(JdbcTemplate.class);
+    private final JdbcTemplate replica = mock(JdbcTemplate.class);
+    private final ReplicaLagTracker tracker = new ReplicaLagTracker(primary, replica, Duration.ofSeconds(30));
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            completeReadTransaction();
+        }
+    }
+
+    private void positions(String primaryLsn, String replayedLsn) {
+        when(primary.queryForObject(anyString(), eq(String.class))).thenReturn(primaryLsn);
+        when(replica.queryForObject(anyString(), eq(String.class))).thenReturn(replayedLsn);
+    }
+
+    private boolean readPinnedToPrimary(UUID userId) {
+        TransactionSynchronizationManager.initSynchronization();
+        tracker.pinIfRecentlyWritten(userId);
+        boolean pinned = tracker.readsFromPrimary();
+        completeReadTransaction();
+        return pinned;
+    }
+
+    private static void completeReadTransaction() {
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void writeKeepsReadsOnPrimaryUntilReplicaReplaysTheNextPoll() {
+        positions("0/100", "0/100");
+        tracker.pollReplayPosition();
+
+        tracker.onUserModified(new UserModifiedEvent(USER_ID));
+        assertThat(readPinnedToPrimary(USER_ID)).isTrue();
+        assertThat(readPinnedToPrimary(OTHER_USER_ID)).isFalse();
+
+        // The primary has moved past the write, the replica has not replayed it yet
+        positions("0/200", "0/100");
+        tracker.pollReplayPosition();
+        assertThat(readPinnedToPrimary(USER_ID)).isTrue();
+
+        positions("0/200", "0/200");
+        tracker.pollReplayPosition();
+        assertThat(readPinnedToPrimary(USER_ID)).isFalse();
+    }
+
+    @Test
+    void unreachableReplicaKeepsRecentWritersOnPrimary() {
+        tracker.onUserModified(new UserModifiedEvent(USER_ID));
+        when(primary.queryForObject(anyString(), eq(String.class))).thenReturn("0/200");
+        when(replica.queryForObject(anyString(), eq(String.class))).thenThrow(new IllegalStateException("replica down"));
+
+        tracker.pollReplayPosition();
+
+        assertThat(readPinnedToPrimary(USER_ID)).isTrue();
+    }
+
+    @Test
+    void writesAndReadsDoNotQueryTheDatabase() {
+        tracker.onUserModified(new UserModifiedEvent(USER_ID));
+        readPinnedToPrimary(USER_ID);
+
+        verifyNoInteractions(primary, replica);
+    }
+
+    @Test
+    void pinEndsWithTheTransaction() {
+        tracker.onUserModified(new UserModifiedEvent(USER_ID));
+
+        assertThat(readPinnedToPrimary(USER_ID)).isTrue();
+        assertThat(ReplicaLagTracker.isPrimaryRequired()).isFalse();
+    }
+
+    @Test
+    void parsesLsn() {
+        assertThat(ReplicaLagTracker.parseLsn("16/B374D848")).isEqualTo(0x16B374D848L);
+    }
+
+}
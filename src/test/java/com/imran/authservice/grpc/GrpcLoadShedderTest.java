@@ -0,0 +1,127 @@
+package com.imran.authservice.grpc;
+
+import com.imran.authservice.grpc.v1.TokenValidationGrpc;
+import com.imran.authservice.grpc.v1.ValidateRequest;
+import com.imran.authservice.grpc.v1.ValidateResponse;
+import com.imran.authservice.grpc.v1.ValidationStatus;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GrpcLoadShedderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TokenValidationGrpc.TokenValidationImplBase blocking = new TokenValidationGrpc.TokenValidationImplBase() {
+            @Override
+            public void validate(ValidateRequest request, StreamObserver<ValidateResponse> responseObserver) {
+                if (request.getToken().equals("slow")) {
+                    entered.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                responseObserver.onNext(ValidateResponse.newBuilder().setStatus(ValidationStatus.VALID).build());
+                responseObserver.onCompleted();
+            }
+        };
+        GrpcLoadShedder shedder = new GrpcLoadShedder(pool, 1, meterRegistry);
+
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .callExecutor(shedder)
+                .addService(ServerInterceptors.intercept(blocking, shedder))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        channel.shutdownNow();
+        server.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    private ValidationStatus validate(String token) {
+        return TokenValidationGrpc.newBlockingStub(channel)
+                .withDeadlineAfter(5, TimeUnit.SECONDS)
+                .validate(ValidateRequest.newBuilder().setToken(token).build())
+                .getStatus();
+    }
+
+    @Test
+    void callsBeyondTheSlotsAreResourceExhausted() throws Exception {
+        TokenValidationGrpc.newStub(channel).validate(ValidateRequest.newBuilder().setToken("slow").build(),
+                new StreamObserver<>() {
+                    @Override
+                    public void onNext(ValidateResponse value) {
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                });
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> validate("fast"))
+                .isInstanceOfSatisfying(StatusRuntimeException.class,
+                        e -> assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED));
+        assertThat(meterRegistry.get("grpc.server.shed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void slotIsReturnedWhenTheCallCompletes() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(validateOnceSlotIsFree()).isEqualTo(ValidationStatus.VALID);
+        }
+    }
+
+    // The slot comes back when the server cancels the call's context, just after the client saw the response
+    private ValidationStatus validateOnceSlotIsFree() throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return validate("fast");
+            } catch (StatusRuntimeException e) {
+                if (e.getStatus().getCode() != Status.Code.RESOURCE_EXHAUSTED || attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.imran.authservice.grpc;
+
+import com.imran.authservice.grpc.v1.TokenValidationGrpc;
+import com.imran.authservice.grpc.v1.ValidateRequest;
+import com.imran.authservice.grpc.v1.ValidationStatus;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput and p99 of token validation over gRPC against GET /auth/validate,
+ * which runs the same checks behind the bearer filter, both against a running
+ * instance so Redis and the user cache are in the measurement. Run the instance
+ * with concurrency-limit.enabled=false, or an initial limit above the benchmark
+ * concurrency, so the REST side measures validation rather than load shedding.
+ * Only runs when given a live access token, a JWT or an opaque handle, so the two
+ * token modes are compared by running it once with each:
+ * <pre>
+ * ./gradlew test --tests '*TokenValidationBenchmarkTest' -Dbenchmark.token=eyJ... \
+ *     [-Dbenchmark.host=localhost -Dbenchmark.requests=20000 -Dbenchmark.concurrency=32]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark.token", matches = ".+")
+class TokenValidationBenchmarkTest {
+
+    private static final String TOKEN = System.getProperty("benchmark.token");
+    private static final String HOST = System.getProperty("benchmark.host", "localhost");
+    private static final int REST_PORT = Integer.getInteger("benchmark.rest-port", 20001);
+    private static final int GRPC_PORT = Integer.getInteger("benchmark.grpc-port", 9090);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 20_000);
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 32);
+
+    @Test
+    void grpcAgainstRest() throws Exception {
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest validateRest = HttpRequest.newBuilder(URI.create("http://" + HOST + ":" + REST_PORT + "/auth-service/api/v1/auth/validate"))
+                .header("Authorization", "Bearer " + TOKEN)
+                .build();
+        ManagedChannel channel = ManagedChannelBuilder.forAddress(HOST, GRPC_PORT).usePlaintext().build();
+        TokenValidationGrpc.TokenValidationBlockingStub stub = TokenValidationGrpc.newBlockingStub(channel);
+        ValidateRequest validate = ValidateRequest.newBuilder().setToken(TOKEN).build();
+
+        try {
+            Call rest = () -> http.send(validateRest, HttpResponse.BodyHandlers.discarding()).statusCode() == 204;
+            Call grpc = () -> stub.validate(validate).getStatus() == ValidationStatus.VALID;
+
+            // Warm both paths up before measuring
+            run(rest, REQUESTS / 10);
+            run(grpc, REQUESTS / 10);
+
+            Result restResult = run(rest, REQUESTS);
+            Result grpcResult = run(grpc, REQUESTS);
+            System.out.printf("REST: %s%ngRPC: %s%n", restResult, grpcResult);
+
+            assertThat(restResult.failures).isZero();
+            assertThat(grpcResult.failures).isZero();
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    private static Result run(Call call, int requests) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(CONCURRENCY);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            workers.execute(() -> {
+                for (int n = next.getAndIncrement(); n < requests; n = next.getAndIncrement()) {
+                    long begin = System.nanoTime();
+                    try {
+                        if (!call.ok()) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                    latencies[n] = System.nanoTime() - begin;
+                }
+            });
+        }
+        workers.shutdown();
+        assertThat(workers.awaitTermination(10, TimeUnit.MINUTES)).isTrue();
+        long elapsed = System.nanoTime() - started;
+
+        Arrays.sort(latencies);
+        return new Result(requests * 1e9 / elapsed, latencies[(int) (requests * 0.99) - 1] / 1e6, failures.get());
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        boolean ok() throws Exception;
+    }
+
+    private record Result(double throughput, double p99Millis, int failures) {
+        @Override
+        public String toString() {
+            return String.format("%.0f req/s, p99 %.2f ms, %d failures", throughput, p99Millis, failures);
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.imran.authservice.grpc;
+
+import com.imran.authservice.grpc.v1.TokenValidationGrpc;
+import com.imran.authservice.grpc.v1.ValidateBatchRequest;
+import com.imran.authservice.grpc.v1.ValidateBatchResponse;
+import com.imran.authservice.grpc.v1.ValidateRequest;
+import com.imran.authservice.grpc.v1.ValidateResponse;
+import com.imran.authservice.grpc.v1.ValidationStatus;
+import com.imran.authservice.enums.Role;
+import com.imran.authservice.enums.UserStatus;
+import com.imran.authservice.model.User;
+import com.imran.authservice.security.AccessTokenClaims;
+import com.imran.authservice.security.CustomUserDetailsService;
+import com.imran.authservice.security.JwtTokenProvider;
+import com.imran.authservice.security.OpaqueTokenService;
+import com.imran.authservice.service.TokenBlacklistService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenValidationGrpcServiceTest {
+
+    private static final UUID USER_ID = UUID.fromString("0190a5f0-0000-7000-8000-000000000004");
+    private static final UUID LOCKED_USER_ID = UUID.fromString("0190a5f0-0000-7000-8000-000000000005");
+    private static final UUID SUSPENDED_USER_ID = UUID.fromString("0190a5f0-0000-7000-8000-000000000006");
+
+    private final JwtTokenProvider jwtTokenProvider = mock(JwtTokenProvider.class);
+    private final TokenBlacklistService tokenBlacklistService = mock(TokenBlacklistService.class);
+    private final CustomUserDetailsService customUserDetailsService = mock(CustomUserDetailsService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        long now = System.currentTimeMillis() / 1000;
+        AccessTokenClaims claims = new AccessTokenClaims(USER_ID.toString(), "user@example.com", "user",
+                "ROLE_USER", "auth-service", now, now + 900, null, null);
+        when(jwtTokenProvider.parseAccessToken("valid.jwt.token")).thenReturn(claims);
+        when(jwtTokenProvider.parseAccessToken("revoked.jwt.token")).thenReturn(claims);
+        when(tokenBlacklistService.isTokenBlacklisted(eq("revoked.jwt.token"), any())).thenReturn(true);
+        when(jwtTokenProvider.parseAccessToken("locked.jwt.token")).thenReturn(claimsOf(LOCKED_USER_ID, now));
+        when(jwtTokenProvider.parseAccessToken("suspended.jwt.token")).thenReturn(claimsOf(SUSPENDED_USER_ID, now));
+
+        when(customUserDetailsService.loadUserById(USER_ID.toString()))
+                .thenReturn(user(USER_ID, UserStatus.ACTIVE, null));
+        when(customUserDetailsService.loadUserById(LOCKED_USER_ID.toString()))
+                .thenReturn(user(LOCKED_USER_ID, UserStatus.ACTIVE, LocalDateTime.now().plusMinutes(15)));
+        when(customUserDetailsService.loadUserById(SUSPENDED_USER_ID.toString()))
+                .thenReturn(user(SUSPENDED_USER_ID, UserStatus.SUSPENDED, null));
+
+        TokenValidationGrpcService service = new TokenValidationGrpcService(
+                jwtTokenProvider, tokenBlacklistService, mock(OpaqueTokenService.class), customUserDetailsService);
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(ServerInterceptors.intercept(service, new GrpcMetricsInterceptor(meterRegistry)))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    private static AccessTokenClaims claimsOf(UUID userId, long now) {
+        return new AccessTokenClaims(userId.toString(), "user@example.com", "user",
+                "ROLE_USER", "auth-service", now, now + 900, null, null);
+    }
+
+    private static User user(UUID id, UserStatus status, LocalDateTime lockedUntil) {
+        return User.builder().id(id).role(Role.USER).status(status).lockedUntil(lockedUntil).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void validatesSingleTokenWithCompactClaims() {
+        ValidateResponse response = TokenValidationGrpc.newBlockingStub(channel)
+                .validate(ValidateRequest.newBuilder().setToken("valid.jwt.token").build());
+
+        assertThat(response.getStatus()).isEqualTo(ValidationStatus.VALID);
+        ByteBuffer userId = response.getClaims().getUserId().asReadOnlyByteBuffer();
+        assertThat(new UUID(userId.getLong(), userId.getLong())).isEqualTo(USER_ID);
+        assertThat(response.getClaims().getRoles()).isEqualTo("ROLE_USER");
+        assertThat(meterRegistry.get("grpc.server.calls").tag("method", "Validate").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void batchAnswersInRequestOrder() {
+        ValidateBatchResponse response = TokenValidationGrpc.newBlockingStub(channel)
+                .validateBatch(ValidateBatchRequest.newBuilder()
+                        .addRequests(ValidateRequest.newBuilder().setToken("valid.jwt.token"))
+                        .addRequests(ValidateRequest.newBuilder().setToken("revoked.jwt.token"))
+                        .addRequests(ValidateRequest.newBuilder().setToken("garbage.jwt.token"))
+                        .build());
+
+        assertThat(response.getResponsesList()).extracting(ValidateResponse::getStatus)
+                .containsExactly(ValidationStatus.VALID, ValidationStatus.REVOKED, ValidationStatus.INVALID);
+    }
+
+    @Test
+    void tokensOfLockedOrSuspendedUsersAreInvalid() {
+        ValidateBatchResponse response = TokenValidationGrpc.newBlockingStub(channel)
+                .validateBatch(ValidateBatchRequest.newBuilder()
+                        .addRequests(ValidateRequest.newBuilder().setToken("locked.jwt.token"))
+                        .addRequests(ValidateRequest.newBuilder().setToken("suspended.jwt.token"))
+                        .build());
+
+        assertThat(response.getResponsesList()).extracting(ValidateResponse::getStatus)
+                .containsExactly(ValidationStatus.INVALID, ValidationStatus.INVALID);
+    }
+
+    @Test
+    void streamEchoesCorrelationIds() throws InterruptedException {
+        List<ValidateResponse> responses = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        StreamObserver<ValidateRequest> requests = TokenValidationGrpc.newStub(channel)
+                .validateStream(new StreamObserver<>() {
+                    @Override
+                    public void onNext(ValidateResponse response) {
+                        responses.add(response);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        completed.countDown();
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        completed.countDown();
+                    }
+                });
+
+        requests.onNext(ValidateRequest.newBuilder().setToken("revoked.jwt.token").setCorrelationId(7).build());
+        requests.onNext(ValidateRequest.newBuilder().setToken("valid.jwt.token").setCorrelationId(8).build());
+        requests.onCompleted();
+
+        assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(responses).extracting(ValidateResponse::getCorrelationId).containsExactly(7L, 8L);
+        assertThat(responses).extracting(ValidateResponse::getStatus)
+                .containsExactly(ValidationStatus.REVOKED, ValidationStatus.VALID);
+    }
+
+}
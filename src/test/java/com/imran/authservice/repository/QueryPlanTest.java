@@ -0,0 +1,105 @@
+package com.imran.authservice.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the migrations against a real PostgreSQL and checks that every hot query,
+ * written the way Hibernate renders it, is answered by a single index.
+ * Sequential scans are disabled so the result does not depend on table size.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class QueryPlanTest {
+
+    @Container
+    static final PostgreSQLContainer POSTGRES = new PostgreSQLContainer("postgres:16-alpine");
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .load()
+                .migrate();
+    }
+
+    @Test
+    void loginByEmailUsesLowerEmailIndex() throws SQLException {
+        assertThat(plan("SELECT id FROM users WHERE lower(email) = 'user@example.com'"))
+                .contains("uk_users_email_lower")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void loginByUsernameUsesLowerUsernameIndex() throws SQLException {
+        assertThat(plan("SELECT id FROM users WHERE lower(username) = lower('Imran')"))
+                .contains("uk_users_username_lower")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void refreshTokenLookupUsesTokenIndex() throws SQLException {
+        assertThat(plan("SELECT id FROM refresh_tokens WHERE token_hash = sha256('token')"))
+                .contains("uk_refresh_tokens_token_hash")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void activeSessionsUseUserActiveIndexWithoutSort() throws SQLException {
+        assertThat(plan("SELECT id, ip_address, user_agent, expiry_date FROM refresh_tokens "
+                + "WHERE user_id = '00000000-0000-0000-0000-000000000001' AND revoked = false "
+                + "AND expiry_date > now() ORDER BY expiry_date DESC, id DESC LIMIT 20"))
+                .contains("idx_refresh_tokens_user_active")
+                .doesNotContain("Seq Scan")
+                .doesNotContain("Sort");
+    }
+
+    @Test
+    void expiredTokenCleanupUsesExpiryIndex() throws SQLException {
+        assertThat(plan("DELETE FROM refresh_tokens WHERE expiry_date < now()"))
+                .contains("idx_refresh_tokens_expiry_date")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void duplicateIndexesAreGone() throws SQLException {
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT count(*) FROM pg_indexes WHERE indexname IN ('idx_email', 'idx_username')")) {
+            rs.next();
+            assertThat(rs.getInt(1)).isZero();
+        }
+    }
+
+    private String plan(String sql) throws SQLException {
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");
+
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.imran.authservice.security;
+
+import com.imran.authservice.service.RecentRevocations;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessTokenCodecTest {
+
+    private static final String SECRET =
+            "295a48c13ac272c6d76a3c4fc6b4069c09e6ab67d3857cf3d771c88bcdcaa4741353a92e093e1470347deb78999847cee65e83cf27fecdf64e7c474ce8ac1fa8";
+
+    private final Key key = Keys.hmacShaKeyFor(SECRET.getBytes());
+    private final AccessTokenCodec codec = new AccessTokenCodec(key.getEncoded());
+
+    @Test
+    void encodesByteIdenticalToJjwt() {
+        long now = System.currentTimeMillis();
+        List<String> emails = List.of(
+                "user@example.com",
+                "quote\"and\\backslash@example.com",
+                "control\n\t\u0001@example.com",
+                "ünïcødé@exämple.com",
+                "emoji😀@example.com");
+
+        for (String email : emails) {
+            for (List<GrantedAuthority> authorities : List.of(
+                    List.<GrantedAuthority>of(new SimpleGrantedAuthority("ROLE_USER")),
+                    List.<GrantedAuthority>of(new SimpleGrantedAuthority("ROLE_ADMIN"), new SimpleGrantedAuthority("ROLE_SUPER_ADMIN")))) {
+                UUID userId = UUID.randomUUID();
+
+                UUID sessionId = UUID.randomUUID();
+
+                String expected = jjwtToken(userId, null, email, "user_" + email.length(), authorities, now, now + 900_000);
+                String actual = codec.encode(userId, null, email, "user_" + email.length(), authorities,
+                        "auth-service", now, (now + 900_000) / 1000);
+                assertThat(actual).isEqualTo(expected);
+
+                expected = jjwtToken(userId, sessionId, email, "user_" + email.length(), authorities, now, now + 900_000);
+                actual = codec.encode(userId, sessionId, email, "user_" + email.length(), authorities,
+                        "auth-service", now, (now + 900_000) / 1000);
+                assertThat(actual).isEqualTo(expected);
+                assertThat(codec.decode(actual, now).getSessionId()).isEqualTo(sessionId.toString());
+                assertThat(codec.decode(actual, now).getIssuedAtMillis()).isEqualTo(now);
+            }
+        }
+    }
+
+    @Test
+    void decodesClaimsWrittenByJjwt() {
+        long now = System.currentTimeMillis();
+        UUID userId = UUID.randomUUID();
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        String token = jjwtToken(userId, null, "sé\"cret@example.com", "imran", authorities, now, now + 900_000);
+
+        AccessTokenClaims claims = codec.decode(token, now);
+        Claims expected = Jwts.parser().setSigningKey(key).build().parseClaimsJws(token).getBody();
+
+        assertThat(claims).isNotNull();
+        assertThat(claims.getUserId()).isEqualTo(userId);
+        assertThat(claims.getEmail()).isEqualTo(expected.get("email", String.class));
+        assertThat(claims.getUsername()).isEqualTo("imran");
+        assertThat(claims.getRoles()).isEqualTo("ROLE_USER");
+        assertThat(claims.getIssuer()).isEqualTo(expected.getIssuer());
+        assertThat(claims.getExpiration()).isEqualTo(expected.getExpiration());
+    }
+
+    @Test
+    void rejectsTamperedAndExpiredTokens() {
+        long now = System.currentTimeMillis();
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        String token = codec.encode(UUID.randomUUID(), null, "user@example.com", "user", authorities,
+                "auth-service", now, (now + 900_000) / 1000);
+
+        String[] parts = token.split("\\.");
+        String forgedPayload = codec.encode(UUID.randomUUID(), null, "user@example.com", "user", authorities,
+                "auth-service", now, (now + 900_000) / 1000).split("\\.")[1];
+
+        assertThat(codec.decode(token, now)).isNotNull();
+        assertThat(codec.decode(parts[0] + "." + forgedPayload + "." + parts[2], now)).isNull();
+        assertThat(codec.decode(token, now + 901_000)).isNull();
+        assertThat(codec.decode("not-a-token", now)).isNull();
+    }
+
+    @Test
+    void rejectsSignatureWithModifiedTrailingBits() {
+        long now = System.currentTimeMillis();
+        String token = jjwtToken(UUID.randomUUID(), null, "user@example.com", "user",
+                List.of(new SimpleGrantedAuthority("ROLE_USER")), now, now + 900_000);
+
+        // 43 characters carry 258 bits for a 256-bit signature: flipping the last bit keeps the bytes
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        char last = token.charAt(token.length() - 1);
+        String variant = token.substring(0, token.length() - 1) + alphabet.charAt(alphabet.indexOf(last) ^ 1);
+
+        assertThat(codec.decode(token, now)).isNotNull();
+        assertThat(AccessTokenCodec.hasCanonicalSignature(token)).isTrue();
+        assertThat(codec.decode(variant, now)).isNull();
+        assertThat(AccessTokenCodec.hasCanonicalSignature(variant)).isFalse();
+        assertThat(RecentRevocations.digest(variant)).isEqualTo(RecentRevocations.digest(token));
+    }
+
+    private String jjwtToken(UUID userId, UUID sessionId, String email, String username,
+                             List<GrantedAuthority> authorities, long issuedAt, long expiresAt) {
+        return Jwts.builder()
+                .setSubject(userId.toString())
+                .claim("sid", sessionId == null ? null : sessionId.toString())
+                .claim("email", email)
+                .claim("username", username)
+                .claim("roles", authorities.stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .collect(Collectors.joining(",")))
+                .setIssuer("auth-service")
+                .setIssuedAt(new Date(issuedAt))
+                .claim("iat_ms", issuedAt)
+                .setExpiration(new Date(expiresAt))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+}
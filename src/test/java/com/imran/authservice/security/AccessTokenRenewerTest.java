@@ -0,0 +1,75 @@
+package com.imran.authservice.security;
+
+import com.imran.authservice.enums.Role;
+import com.imran.authservice.model.User;
+import com.imran.authservice.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AccessTokenRenewerTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final UUID SESSION_ID = UUID.randomUUID();
+
+    private final JwtTokenProvider jwtTokenProvider = mock(JwtTokenProvider.class);
+    private final RefreshTokenRepository refreshTokenRepository = mock(RefreshTokenRepository.class);
+    private final User user = User.builder().id(USER_ID).role(Role.USER).build();
+
+    private AccessTokenRenewer renewer(boolean enabled) {
+        when(jwtTokenProvider.generateAccessToken(any(), eq(SESSION_ID))).thenReturn("renewed.jwt.token");
+        when(refreshTokenRepository.findActiveSessionUser(eq(SESSION_ID), eq(USER_ID), any())).thenReturn(Optional.of(user));
+        return new AccessTokenRenewer(jwtTokenProvider, refreshTokenRepository, new SimpleMeterRegistry(),
+                enabled, 0.5, 0.2, Duration.ofMinutes(1), 1000);
+    }
+
+    private static AccessTokenClaims claimsIssuedSecondsAgo(long age, UUID sessionId) {
+        long now = System.currentTimeMillis() / 1000;
+        return new AccessTokenClaims(USER_ID.toString(), "user@example.com", "user",
+                "ROLE_USER", "auth-service", now - age, now - age + 900,
+                sessionId == null ? null : sessionId.toString(), null);
+    }
+
+    @Test
+    void freshTokenIsNotRenewed() {
+        assertThat(renewer(true).renewIfDue("a.b.fresh", claimsIssuedSecondsAgo(60, SESSION_ID))).isNull();
+    }
+
+    @Test
+    void tokenPastThresholdIsRenewedOncePerInterval() {
+        AccessTokenRenewer renewer = renewer(true);
+        AccessTokenClaims claims = claimsIssuedSecondsAgo(700, SESSION_ID);
+
+        assertThat(renewer.renewIfDue("a.b.old", claims)).isEqualTo("renewed.jwt.token");
+        assertThat(renewer.renewIfDue("a.b.old", claims)).isNull();
+        verify(jwtTokenProvider, times(1)).generateAccessToken(any(), eq(SESSION_ID));
+    }
+
+    @Test
+    void tokenOfEndedSessionIsNotRenewed() {
+        AccessTokenRenewer renewer = renewer(true);
+        when(refreshTokenRepository.findActiveSessionUser(eq(SESSION_ID), eq(USER_ID), any())).thenReturn(Optional.empty());
+
+        assertThat(renewer.renewIfDue("a.b.revoked", claimsIssuedSecondsAgo(700, SESSION_ID))).isNull();
+        assertThat(renewer.renewIfDue("a.b.unbound", claimsIssuedSecondsAgo(700, null))).isNull();
+        verify(jwtTokenProvider, never()).generateAccessToken(any(), any());
+    }
+
+    @Test
+    void disabledRenewerNeverRenews() {
+        assertThat(renewer(false).renewIfDue("a.b.old", claimsIssuedSecondsAgo(800, SESSION_ID))).isNull();
+    }
+
+}
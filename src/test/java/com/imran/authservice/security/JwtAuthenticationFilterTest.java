@@ -0,0 +1,87 @@
+package com.imran.authservice.security;
+
+import com.imran.authservice.enums.Role;
+import com.imran.authservice.enums.UserStatus;
+import com.imran.authservice.model.User;
+import com.imran.authservice.service.TokenBlacklistService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String TOKEN = "header.payload.signature";
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    private final JwtTokenProvider jwtTokenProvider = mock(JwtTokenProvider.class);
+    private final CustomUserDetailsService customUserDetailsService = mock(CustomUserDetailsService.class);
+    private final TokenBlacklistService tokenBlacklistService = mock(TokenBlacklistService.class);
+
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        long now = System.currentTimeMillis() / 1000;
+        when(jwtTokenProvider.parseAccessToken(TOKEN)).thenReturn(new AccessTokenClaims(USER_ID.toString(),
+                "admin@example.com", "admin", "ROLE_ADMIN", "auth-service", now, now + 900, null, null));
+        filter = new JwtAuthenticationFilter(jwtTokenProvider, customUserDetailsService, tokenBlacklistService,
+                mock(OpaqueTokenService.class), new VerifiedTokenCache(1000, Duration.ofMinutes(5)),
+                mock(AccessTokenRenewer.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Authentication request() throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/auth/me");
+        request.addHeader("Authorization", "Bearer " + TOKEN);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private void userIs(Role role, UserStatus status) {
+        when(customUserDetailsService.loadUserById(USER_ID.toString()))
+                .thenReturn(User.builder().id(USER_ID).role(role).status(status).build());
+    }
+
+    @Test
+    void cachedTokenIsVerifiedOnceButPrincipalIsLoadedEveryRequest() throws Exception {
+        userIs(Role.ADMIN, UserStatus.ACTIVE);
+        assertThat(request().getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+
+        userIs(Role.USER, UserStatus.ACTIVE);
+        assertThat(request().getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+
+        verify(jwtTokenProvider, times(1)).parseAccessToken(TOKEN);
+        verify(tokenBlacklistService, times(1)).isTokenBlacklisted(any(), any());
+    }
+
+    @Test
+    void disabledAccountIsNotAuthenticatedWithCachedToken() throws Exception {
+        userIs(Role.USER, UserStatus.ACTIVE);
+        assertThat(request()).isNotNull();
+
+        userIs(Role.USER, UserStatus.SUSPENDED);
+        assertThat(request()).isNull();
+    }
+
+}
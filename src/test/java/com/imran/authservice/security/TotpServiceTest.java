@@ -0,0 +1,36 @@
+package com.imran.authservice.security;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TotpServiceTest {
+
+    // RFC 6238 appendix B, SHA-1 seed, truncated to 6 digits
+    private static final byte[] RFC_SEED = "12345678901234567890".getBytes(StandardCharsets.US_ASCII);
+
+    private final TotpService totpService = new TotpService(null);
+
+    @Test
+    void matchesRfc6238TestVectors() {
+        SecretKeySpec key = new SecretKeySpec(RFC_SEED, "HmacSHA1");
+
+        assertThat(totpService.generateCode(key, 59L / 30)).isEqualTo(287082);
+        assertThat(totpService.generateCode(key, 1111111109L / 30)).isEqualTo(81804);
+        assertThat(totpService.generateCode(key, 1234567890L / 30)).isEqualTo(5924);
+        assertThat(totpService.generateCode(key, 2000000000L / 30)).isEqualTo(279037);
+    }
+
+    @Test
+    void base32RoundTripsSecrets() {
+        String encoded = TotpService.base32Encode(RFC_SEED);
+
+        assertThat(encoded).isEqualTo("GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQ");
+        assertThat(TotpService.base32Decode(encoded)).isEqualTo(RFC_SEED);
+        assertThat(totpService.generateSecret()).hasSize(32);
+    }
+
+}
@@ -0,0 +1,181 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.config.JwtConfig;
+import com.imran.authservice.config.ReplicaLagTracker;
+import com.imran.authservice.dto.AuthResponse;
+import com.imran.authservice.enums.Role;
+import com.imran.authservice.enums.TokenMode;
+import com.imran.authservice.enums.UserStatus;
+import com.imran.authservice.exception.InvalidTokenException;
+import com.imran.authservice.model.RefreshToken;
+import com.imran.authservice.model.User;
+import com.imran.authservice.repository.RefreshTokenRepository;
+import com.imran.authservice.repository.UserRepository;
+import com.imran.authservice.security.JwtTokenProvider;
+import com.imran.authservice.security.OpaqueTokenService;
+import com.imran.authservice.util.RefreshTokens;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthServiceRefreshTokenTest {
+
+    private static final String TOKEN = "presented-refresh-token";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RefreshTokenRepository refreshTokenRepository = mock(RefreshTokenRepository.class);
+    private final JwtTokenProvider jwtTokenProvider = mock(JwtTokenProvider.class);
+    private final OpaqueTokenService opaqueTokenService = mock(OpaqueTokenService.class);
+    private final TokenBlacklistService tokenBlacklistService = mock(TokenBlacklistService.class);
+    private final RefreshTokenRevocationQueue revocationQueue = mock(RefreshTokenRevocationQueue.class);
+
+    private final User user = User.builder()
+            .id(UUID.randomUUID())
+            .email("user@example.com")
+            .role(Role.USER)
+            .status(UserStatus.ACTIVE)
+            .build();
+
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() {
+        JwtConfig jwtConfig = new JwtConfig();
+        jwtConfig.setAccessTokenExpiration(900_000L);
+
+        authService = new AuthService(mock(AuthenticationManager.class), userRepository, refreshTokenRepository,
+                jwtTokenProvider, opaqueTokenService, mock(PasswordEncoder.class), jwtConfig, tokenBlacklistService,
+                mock(ReplicaLagTracker.class), mock(ApplicationEventPublisher.class), mock(MfaService.class),
+                mock(OneTimeTokenService.class), mock(AuditService.class), mock(UserVersionCache.class),
+                revocationQueue, mock(LoginAttemptService.class));
+        ReflectionTestUtils.setField(authService, "refreshReuseGrace", Duration.ofSeconds(30));
+
+        when(userRepository.findByIdForLogin(user.getId())).thenReturn(Optional.of(user));
+        when(refreshTokenRepository.save(any())).thenAnswer(invocation -> {
+            RefreshToken saved = invocation.getArgument(0);
+            saved.setId(UUID.randomUUID());
+            return saved;
+        });
+        when(jwtTokenProvider.generateAccessToken(any(), any())).thenReturn("new.access.token");
+    }
+
+    private void stored(boolean revoked, LocalDateTime expiryDate) {
+        stored(revoked, false, null, expiryDate);
+    }
+
+    private void stored(boolean revoked, boolean rotated, LocalDateTime revokedAt, LocalDateTime expiryDate) {
+        RefreshToken token = RefreshToken.builder()
+                .id(UUID.randomUUID())
+                .user(user)
+                .tokenHash(RefreshTokens.hash(TOKEN))
+                .tokenMode(TokenMode.JWT)
+                .expiryDate(expiryDate)
+                .revoked(revoked)
+                .rotated(rotated)
+                .revokedAt(revokedAt)
+                .build();
+        when(refreshTokenRepository.findByTokenHash(eq(RefreshTokens.hash(TOKEN)))).thenReturn(Optional.of(token));
+    }
+
+    @Test
+    void rotatesLiveToken() {
+        stored(false, LocalDateTime.now().plusDays(1));
+        when(refreshTokenRepository.rotateByTokenHash(any(), any())).thenReturn(1);
+
+        AuthResponse response = authService.refreshToken(TOKEN, "127.0.0.1", "test");
+
+        assertThat(response.getAccessToken()).isEqualTo("new.access.token");
+        assertThat(response.getRefreshToken()).isNotEqualTo(TOKEN);
+        verify(refreshTokenRepository).save(any());
+    }
+
+    @Test
+    void losingConcurrentRotationIsRejected() {
+        stored(false, LocalDateTime.now().plusDays(1));
+        when(refreshTokenRepository.rotateByTokenHash(any(), any())).thenReturn(0);
+
+        assertThatThrownBy(() -> authService.refreshToken(TOKEN, "127.0.0.1", "test"))
+                .isInstanceOf(InvalidTokenException.class);
+        verify(refreshTokenRepository, never()).save(any());
+        verify(refreshTokenRepository, never()).revokeUserTokens(any(), any());
+    }
+
+    @Test
+    void reusedRotatedTokenRevokesAllSessions() {
+        stored(true, true, LocalDateTime.now().minusMinutes(5), LocalDateTime.now().plusDays(1));
+
+        assertThatThrownBy(() -> authService.refreshToken(TOKEN, "127.0.0.1", "test"))
+                .isInstanceOf(InvalidTokenException.class);
+        verify(refreshTokenRepository).revokeUserTokens(eq(user), any());
+        verify(tokenBlacklistService).blacklistAllUserTokens(user.getId().toString(), "refresh_token_reuse");
+        verify(opaqueTokenService).revokeAllForUser(user.getId());
+    }
+
+    @Test
+    void tokenRotatedWithinGraceIsOnlyRejected() {
+        // A second tab refreshing, or a retry after a lost response
+        stored(true, true, LocalDateTime.now().minusSeconds(2), LocalDateTime.now().plusDays(1));
+
+        assertRejectedWithoutRevokingEverything();
+    }
+
+    @Test
+    void tokenRevokedByLogoutIsOnlyRejected() {
+        // RefreshTokenRevocationQueue.apply revokes without rotating
+        stored(true, false, LocalDateTime.now().minusMinutes(5), LocalDateTime.now().plusDays(1));
+
+        assertRejectedWithoutRevokingEverything();
+    }
+
+    @Test
+    void tokenOfRevokedSessionIsOnlyRejected() {
+        // DELETE /sessions/{id} and /sessions/revoke-others, possibly revoked by another device
+        stored(true, false, LocalDateTime.now().minusHours(1), LocalDateTime.now().plusDays(1));
+
+        assertRejectedWithoutRevokingEverything();
+    }
+
+    @Test
+    void tokenRevokedByPasswordResetIsOnlyRejected() {
+        stored(true, false, LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1));
+
+        assertRejectedWithoutRevokingEverything();
+    }
+
+    private void assertRejectedWithoutRevokingEverything() {
+        assertThatThrownBy(() -> authService.refreshToken(TOKEN, "127.0.0.1", "test"))
+                .isInstanceOf(InvalidTokenException.class);
+        verify(refreshTokenRepository, never()).revokeUserTokens(any(), any());
+        verify(tokenBlacklistService, never()).blacklistAllUserTokens(any(), any());
+        verify(opaqueTokenService, never()).revokeAllForUser(any());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void expiredTokenIsRejectedWithoutRotation() {
+        stored(false, LocalDateTime.now().minusMinutes(1));
+
+        assertThatThrownBy(() -> authService.refreshToken(TOKEN, "127.0.0.1", "test"))
+                .isInstanceOf(InvalidTokenException.class);
+        verify(refreshTokenRepository, never()).rotateByTokenHash(any(), any());
+        verify(refreshTokenRepository, never()).revokeUserTokens(any(), any());
+    }
+
+}
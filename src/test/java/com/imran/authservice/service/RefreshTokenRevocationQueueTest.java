@@ -0,0 +1,122 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.repository.RefreshTokenRepository;
+import com.imran.authservice.util.RefreshTokens;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenRevocationQueueTest {
+
+    private static final String TOKEN = "logged-out-refresh-token";
+    private static final String MARKER = "logout:pending:" + RefreshTokens.encode(RefreshTokens.hash(TOKEN));
+    private static final long REFRESH_LIFETIME_MS = 604_800_000L;
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> values = mock(ValueOperations.class);
+    @SuppressWarnings("unchecked")
+    private final StreamOperations<String, Object, Object> stream = mock(StreamOperations.class);
+    private final RefreshTokenRepository refreshTokenRepository = mock(RefreshTokenRepository.class);
+
+    private RefreshTokenRevocationQueue queue;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(redisTemplate.opsForStream()).thenReturn((StreamOperations) stream);
+        when(stream.pending(anyString(), anyString(), any(), anyLong()))
+                .thenReturn(new PendingMessages("refresh-revokers", List.of()));
+        queue = new RefreshTokenRevocationQueue(redisTemplate, refreshTokenRepository,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 500, Duration.ofSeconds(60),
+                REFRESH_LIFETIME_MS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void queued() {
+        MapRecord<String, Object, Object> record = StreamRecords.newRecord()
+                .in("logout:refresh-revocations")
+                .withId(RecordId.of(System.currentTimeMillis(), 0))
+                .ofMap(Map.<Object, Object>of("hash", RefreshTokens.encode(RefreshTokens.hash(TOKEN))));
+        when(stream.read(any(Consumer.class), any(StreamReadOptions.class), any(StreamOffset.class)))
+                .thenReturn(List.of(record), List.of());
+    }
+
+    @Test
+    void markerOutlivesAnyOutageUntilApplied() {
+        queue.enqueue(TOKEN);
+
+        verify(values).set(MARKER, "1", Duration.ofMillis(REFRESH_LIFETIME_MS));
+        verify(stream).add(any(MapRecord.class));
+        verify(refreshTokenRepository, never()).revokeTokens(anyCollection(), any());
+    }
+
+    @Test
+    void unreadableMarkerRejectsTheToken() {
+        when(redisTemplate.hasKey(MARKER)).thenThrow(new RedisConnectionFailureException("down"));
+
+        assertThat(queue.isPendingRevocation(TOKEN)).isTrue();
+    }
+
+    @Test
+    void revokesSynchronouslyWhenTheStreamCannotBeWritten() {
+        when(stream.add(any(MapRecord.class))).thenThrow(new RedisConnectionFailureException("down"));
+
+        queue.enqueue(TOKEN);
+
+        verify(refreshTokenRepository).revokeTokens(anyCollection(), any());
+    }
+
+    @Test
+    void appliedRevocationIsAcknowledgedAndItsMarkerDeleted() {
+        queued();
+        when(refreshTokenRepository.revokeTokens(anyCollection(), any())).thenReturn(1);
+
+        queue.drain();
+
+        verify(refreshTokenRepository).revokeTokens(anyCollection(), any());
+        verify(stream).acknowledge(eq("logout:refresh-revocations"), eq("refresh-revokers"), any(RecordId[].class));
+        verify(redisTemplate).delete(List.of(MARKER));
+    }
+
+    @Test
+    void failedUpdateKeepsEntryPendingAndMarkerInPlace() {
+        queued();
+        when(refreshTokenRepository.revokeTokens(anyCollection(), any())).thenThrow(new IllegalStateException("db down"));
+
+        queue.drain();
+
+        verify(stream, never()).acknowledge(anyString(), anyString(), any(RecordId[].class));
+        verify(redisTemplate, never()).delete(anyCollection());
+    }
+
+}
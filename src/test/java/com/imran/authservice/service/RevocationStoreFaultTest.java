@@ -0,0 +1,95 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.model.BlacklistedToken;
+import com.imran.authservice.repository.BlacklistedTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Write-behind while the database refuses batches: nothing is lost up to the
+ * buffer size, and the oldest revocations are given up on beyond it.
+ */
+class RevocationStoreFaultTest {
+
+    private static final String USER_ID = "0190a5f0-0000-7000-8000-000000000007";
+    private static final long EXPIRES_AT = System.currentTimeMillis() + 900_000;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> persisted = new ArrayList<>();
+    private boolean databaseDown = true;
+
+    @SuppressWarnings("unchecked")
+    private RevocationStore store(int bufferSize) {
+        doAnswer(invocation -> {
+            if (databaseDown) {
+                throw new DataAccessResourceFailureException("connection refused");
+            }
+            for (BlacklistedToken revocation : (Collection<BlacklistedToken>) invocation.getArgument(1)) {
+                persisted.add(revocation.getTokenDigest());
+            }
+            return new int[0][];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+
+        return new RevocationStore(jdbcTemplate, mock(PlatformTransactionManager.class), mock(RedisTemplate.class),
+                mock(BlacklistedTokenRepository.class), new RecentRevocations(1000, 900_000), meterRegistry,
+                bufferSize, 2, 2, 2);
+    }
+
+    private static BlacklistedToken revocation(String digest) {
+        return RevocationStore.tokenRevocation(digest, USER_ID, EXPIRES_AT, "logout");
+    }
+
+    @Test
+    void failedBatchIsWrittenOnceTheDatabaseIsBack() {
+        RevocationStore store = store(16);
+        store.save(revocation("a"));
+        store.save(revocation("b"));
+        store.save(revocation("c"));
+
+        store.flush();
+        assertThat(persisted).isEmpty();
+
+        databaseDown = false;
+        store.flush();
+
+        assertThat(persisted).containsExactlyInAnyOrder("a", "b", "c");
+        assertThat(meterRegistry.get("blacklist.store.writes").tag("outcome", "dropped").counter().count()).isZero();
+    }
+
+    @Test
+    void onlyTheOldestAreGivenUpBeyondTheBufferSize() {
+        RevocationStore store = store(2);
+        store.save(revocation("a"));
+        store.save(revocation("b"));
+        store.flush();
+        store.save(revocation("c"));
+        store.save(revocation("d"));
+        // The buffer is full again, so this one is written through, fails and pushes out the oldest retry
+        store.save(revocation("e"));
+
+        databaseDown = false;
+        store.flush();
+
+        assertThat(persisted).containsExactlyInAnyOrder("b", "c", "d", "e");
+        assertThat(meterRegistry.get("blacklist.store.writes").tag("outcome", "dropped").counter().count()).isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.repository.BlacklistedTokenRepository;
+import com.imran.authservice.support.RedisStandIn;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Writes revocations behind to a real PostgreSQL and restores them into an empty
+ * Redis stand-in, as after a flush or a failover without persistence.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RevocationStoreTest {
+
+    private static final String USER_ID = "0190a5f0-0000-7000-8000-000000000003";
+
+    @Container
+    static final PostgreSQLContainer POSTGRES = new PostgreSQLContainer("postgres:16-alpine");
+
+    private JdbcTemplate jdbcTemplate;
+    private RedisStandIn redis;
+    private LettuceConnectionFactory connectionFactory;
+    private RecentRevocations recentRevocations;
+    private RevocationStore store;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .load()
+                .migrate();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM blacklisted_tokens");
+
+        redis = new RedisStandIn();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redis.getHost(), redis.getPort()),
+                LettuceClientConfiguration.builder()
+                        .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                        .build());
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        recentRevocations = new RecentRevocations(1000, 900_000);
+        store = new RevocationStore(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                new StringRedisTemplate(connectionFactory), mock(BlacklistedTokenRepository.class),
+                recentRevocations, new SimpleMeterRegistry(), 1024, 100, 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connectionFactory.destroy();
+        redis.close();
+    }
+
+    @Test
+    void revocationsAreWrittenBehindAndReloadedIntoEmptyRedis() {
+        long expiresAt = System.currentTimeMillis() + 600_000;
+        long revokedBefore = System.currentTimeMillis();
+        store.save(RevocationStore.tokenRevocation("digest-a", USER_ID, expiresAt, "logout"));
+        store.save(RevocationStore.tokenRevocation("digest-b", USER_ID, expiresAt, "logout"));
+        store.save(RevocationStore.tokenRevocation("digest-expired", USER_ID, System.currentTimeMillis() - 1000, "logout"));
+        store.save(RevocationStore.userRevocation(USER_ID, revokedBefore, Duration.ofMinutes(15), "password_reset"));
+
+        // Nothing reaches the database until the write-behind flush
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM blacklisted_tokens", Long.class)).isZero();
+        store.flush();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM blacklisted_tokens", Long.class)).isEqualTo(4);
+
+        store.loadOnStartup();
+
+        assertThat(redis.get(TokenBlacklistService.tokenKey(USER_ID, "digest-a"))).isEqualTo("blacklisted");
+        assertThat(redis.get(TokenBlacklistService.tokenKey(USER_ID, "digest-b"))).isEqualTo("blacklisted");
+        assertThat(redis.get(TokenBlacklistService.tokenKey(USER_ID, "digest-expired"))).isNull();
+        assertThat(redis.get(TokenBlacklistService.userRevocationKey(USER_ID))).isEqualTo(Long.toString(revokedBefore));
+        assertThat(recentRevocations.contains("digest-a")).isTrue();
+        assertThat(recentRevocations.contains("other", USER_ID, revokedBefore - 10)).isTrue();
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.config.ResilienceConfig;
+import com.imran.authservice.enums.BlacklistFailureMode;
+import com.imran.authservice.security.AccessTokenClaims;
+import com.imran.authservice.security.JwtTokenProvider;
+import com.imran.authservice.support.RedisStandIn;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Simulates Redis stalls against an in-process stand-in and checks that blacklist
+ * checks stay inside their latency budget and follow the configured failure mode.
+ */
+class TokenBlacklistServiceFaultTest {
+
+    private static final Duration READ_TIMEOUT = Duration.ofMillis(50);
+    private static final String USER_ID = "0190a5f0-0000-7000-8000-000000000001";
+
+    private RedisStandIn redis;
+    private final List<LettuceConnectionFactory> factories = new ArrayList<>();
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private RecentRevocations recentRevocations;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redis = new RedisStandIn();
+        circuitBreakerRegistry = CircuitBreakerRegistry.of(
+                ResilienceConfig.redisCircuitBreakerConfig(READ_TIMEOUT, 50, Duration.ofSeconds(30)));
+        recentRevocations = new RecentRevocations(1000, 900_000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        factories.forEach(LettuceConnectionFactory::destroy);
+        redis.close();
+    }
+
+    @Test
+    void answersFromRedisWhenHealthy() {
+        TokenBlacklistService service = service(BlacklistFailureMode.OPEN);
+        redis.put("blacklist:{" + USER_ID + "}:token:" + RecentRevocations.digest("revoked"), "blacklisted");
+
+        assertThat(service.isTokenBlacklisted("revoked", claims())).isTrue();
+        assertThat(service.isTokenBlacklisted("valid", claims())).isFalse();
+    }
+
+    @Test
+    void failOpenStaysWithinBudgetAndUsesLocalReplica() {
+        TokenBlacklistService service = service(BlacklistFailureMode.OPEN);
+        recentRevocations.add(RecentRevocations.digest("revoked-here"), System.currentTimeMillis() + 60_000);
+        redis.stall(2_000);
+
+        for (int i = 0; i < 10; i++) {
+            long start = System.nanoTime();
+            assertThat(service.isTokenBlacklisted("valid-" + i, claims())).isFalse();
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(500));
+        }
+
+        // Breaker is open now, checks no longer wait for Redis at all
+        assertThat(circuitBreakerRegistry.circuitBreaker("redis-blacklist").getState())
+                .isEqualTo(CircuitBreaker.State.OPEN);
+        long start = System.nanoTime();
+        assertThat(service.isTokenBlacklisted("valid", claims())).isFalse();
+        assertThat(service.isTokenBlacklisted("revoked-here", claims())).isTrue();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(20));
+    }
+
+    @Test
+    void failClosedRejectsTokensWhileRedisStalls() {
+        TokenBlacklistService service = service(BlacklistFailureMode.CLOSED);
+        redis.stall(2_000);
+
+        long start = System.nanoTime();
+        assertThat(service.isTokenBlacklisted("valid", claims())).isTrue();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(500));
+    }
+
+    private TokenBlacklistService service(BlacklistFailureMode failureMode) {
+        return new TokenBlacklistService(
+                new StringRedisTemplate(connectionFactory(Duration.ofSeconds(2))),
+                new StringRedisTemplate(connectionFactory(READ_TIMEOUT)),
+                mock(JwtTokenProvider.class),
+                mock(RedisMessageListenerContainer.class),
+                recentRevocations,
+                mock(RevocationStore.class),
+                circuitBreakerRegistry,
+                new SimpleMeterRegistry(),
+                failureMode,
+                900_000);
+    }
+
+    private static AccessTokenClaims claims() {
+        long now = System.currentTimeMillis() / 1000;
+        return new AccessTokenClaims(USER_ID, "user@example.com", "user", "USER", "auth-service", now - 60, now + 840, null, null);
+    }
+
+    private LettuceConnectionFactory connectionFactory(Duration commandTimeout) {
+        LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
+                .commandTimeout(commandTimeout)
+                .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                .build();
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redis.getHost(), redis.getPort()), clientConfig);
+        factory.afterPropertiesSet();
+        factory.start();
+        factories.add(factory);
+        return factory;
+    }
+
+}
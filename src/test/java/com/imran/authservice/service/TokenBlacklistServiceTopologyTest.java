@@ -0,0 +1,149 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.config.ResilienceConfig;
+import com.imran.authservice.enums.BlacklistFailureMode;
+import com.imran.authservice.security.AccessTokenClaims;
+import com.imran.authservice.security.JwtTokenProvider;
+import com.imran.authservice.support.RedisStandIn;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStaticMasterReplicaConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the blacklist against a primary with two replicas, all in-process stand-ins,
+ * and checks that revocations are written to the primary while checks are served
+ * by the replicas.
+ */
+class TokenBlacklistServiceTopologyTest {
+
+    private static final String USER_ID = "0190a5f0-0000-7000-8000-000000000002";
+
+    private RedisStandIn primary;
+    private final List<RedisStandIn> replicas = new ArrayList<>();
+    private final List<LettuceConnectionFactory> factories = new ArrayList<>();
+    private final JwtTokenProvider jwtTokenProvider = mock(JwtTokenProvider.class);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        primary = new RedisStandIn();
+        for (int i = 0; i < 2; i++) {
+            RedisStandIn replica = new RedisStandIn();
+            replica.replicaOf(primary);
+            replicas.add(replica);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        factories.forEach(LettuceConnectionFactory::destroy);
+        primary.close();
+        for (RedisStandIn replica : replicas) {
+            replica.close();
+        }
+    }
+
+    @Test
+    void writesGoToPrimaryAndChecksToReplicas() {
+        AccessTokenClaims claims = claims(-60);
+        when(jwtTokenProvider.parseAccessToken("revoked")).thenReturn(claims);
+
+        service().blacklistToken("revoked", "logout");
+        assertThat(primary.get("blacklist:{" + USER_ID + "}:token:" + RecentRevocations.digest("revoked")))
+                .isEqualTo("blacklisted");
+
+        // A second node has not seen the revocation locally and has to ask Redis
+        TokenBlacklistService otherNode = service();
+        // Connecting discovers the topology by asking every node for its role
+        otherNode.isTokenBlacklisted("connect", claims);
+        int primaryCommands = primary.getCommandCount();
+        int replicaCommands = replicaCommandCount();
+
+        assertThat(otherNode.isTokenBlacklisted("revoked", claims)).isTrue();
+        assertThat(otherNode.isTokenBlacklisted("valid", claims)).isFalse();
+
+        assertThat(primary.getCommandCount()).isEqualTo(primaryCommands);
+        assertThat(replicaCommandCount()).isGreaterThan(replicaCommands);
+    }
+
+    @Test
+    void userWideRevocationCoversTokensIssuedBeforeIt() {
+        service().blacklistAllUserTokens(USER_ID, "password_reset");
+
+        TokenBlacklistService otherNode = service();
+        assertThat(otherNode.isTokenBlacklisted("issued-before", claims(-60))).isTrue();
+        assertThat(otherNode.isTokenBlacklisted("issued-after", claims(5))).isFalse();
+    }
+
+    @Test
+    void tokenIssuedInTheSameSecondAfterUserRevocationStaysValid() {
+        service().blacklistAllUserTokens(USER_ID, "password_reset");
+        long issuedAtMillis = System.currentTimeMillis() + 1;
+        long issuedAt = issuedAtMillis / 1000;
+
+        // The re-login right after a password reset usually lands in the same second
+        AccessTokenClaims relogin = new AccessTokenClaims(USER_ID, "user@example.com", "user", "USER",
+                "auth-service", issuedAt, issuedAt + 900, null, issuedAtMillis);
+        assertThat(service().isTokenBlacklisted("relogin", relogin)).isFalse();
+    }
+
+    private TokenBlacklistService service() {
+        return new TokenBlacklistService(
+                new StringRedisTemplate(connectionFactory(ReadFrom.UPSTREAM)),
+                new StringRedisTemplate(connectionFactory(ReadFrom.REPLICA)),
+                jwtTokenProvider,
+                mock(RedisMessageListenerContainer.class),
+                new RecentRevocations(1000, 900_000),
+                mock(RevocationStore.class),
+                CircuitBreakerRegistry.of(ResilienceConfig.redisCircuitBreakerConfig(
+                        Duration.ofSeconds(1), 50, Duration.ofSeconds(30))),
+                new SimpleMeterRegistry(),
+                BlacklistFailureMode.CLOSED,
+                900_000);
+    }
+
+    private LettuceConnectionFactory connectionFactory(ReadFrom readFrom) {
+        RedisStaticMasterReplicaConfiguration topology =
+                new RedisStaticMasterReplicaConfiguration(primary.getHost(), primary.getPort());
+        replicas.forEach(replica -> topology.node(replica.getHost(), replica.getPort()));
+
+        LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
+                .commandTimeout(Duration.ofSeconds(2))
+                .readFrom(readFrom)
+                .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                .build();
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(topology, clientConfig);
+        factory.afterPropertiesSet();
+        factory.start();
+        factories.add(factory);
+        return factory;
+    }
+
+    private int replicaCommandCount() {
+        return replicas.stream().mapToInt(RedisStandIn::getCommandCount).sum();
+    }
+
+    private static AccessTokenClaims claims(long issuedAtOffsetSeconds) {
+        long now = System.currentTimeMillis() / 1000;
+        return new AccessTokenClaims(USER_ID, "user@example.com", "user", "USER", "auth-service",
+                now + issuedAtOffsetSeconds, now + 840, null, null);
+    }
+
+}
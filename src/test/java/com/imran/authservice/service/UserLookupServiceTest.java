@@ -0,0 +1,97 @@
+package com.imran.authservice.service;
+
+import com.imran.authservice.dto.UserLookupRequest;
+import com.imran.authservice.dto.UserSummaryDto;
+import com.imran.authservice.enums.Role;
+import com.imran.authservice.event.UserModifiedEvent;
+import com.imran.authservice.exception.InvalidRequestException;
+import com.imran.authservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserLookupServiceTest {
+
+    private static final UUID KNOWN = UUID.fromString("0190a5f0-0000-7000-8000-000000000005");
+    private static final UUID UNKNOWN = UUID.fromString("0190a5f0-0000-7000-8000-000000000006");
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserLookupService service = new UserLookupService(userRepository, new SimpleMeterRegistry(),
+            3, 1000, Duration.ofMinutes(5), Duration.ofMinutes(1));
+
+    private static UserLookupRequest request(List<UUID> ids, List<String> emails) {
+        UserLookupRequest request = new UserLookupRequest();
+        request.setIds(ids);
+        request.setEmails(emails);
+        return request;
+    }
+
+    @Test
+    void resolvesDistinctKeysInOrderAndCachesHitsAndMisses() {
+        when(userRepository.findSummariesByIdIn(anyCollection())).thenReturn(List.of(
+                new UserSummaryDto(KNOWN, "user@example.com", "user", "Test", "User")));
+
+        List<UserSummaryDto> first = service.resolve(request(List.of(UNKNOWN, KNOWN, UNKNOWN), List.of()), Role.ADMIN);
+        List<UserSummaryDto> second = service.resolve(request(List.of(KNOWN, UNKNOWN), List.of()), Role.ADMIN);
+
+        assertThat(first).extracting(UserSummaryDto::getId).containsExactly(UNKNOWN, KNOWN);
+        assertThat(first.get(0).getUsername()).isNull();
+        assertThat(first.get(1).getUsername()).isEqualTo("user");
+        assertThat(first.get(1).getEmail()).isNull();
+        assertThat(second).extracting(UserSummaryDto::getUsername).containsExactly("user", null);
+        verify(userRepository, times(1)).findSummariesByIdIn(anyCollection());
+    }
+
+    @Test
+    void emailLookupsShareTheIdCacheAndModificationsInvalidate() {
+        when(userRepository.findSummariesByEmailIn(anyCollection())).thenReturn(List.of(
+                new UserSummaryDto(KNOWN, "user@example.com", "user", "Test", "User")));
+        when(userRepository.findSummariesByIdIn(anyCollection())).thenReturn(List.of(
+                new UserSummaryDto(KNOWN, "user@example.com", "renamed", "Test", "User")));
+
+        assertThat(service.resolve(request(List.of(), List.of("User@Example.com")), Role.ADMIN))
+                .extracting(UserSummaryDto::getEmail).containsExactly("user@example.com");
+        assertThat(service.resolve(request(List.of(KNOWN), List.of()), Role.ADMIN))
+                .extracting(UserSummaryDto::getUsername).containsExactly("user");
+
+        service.onUserModified(new UserModifiedEvent(KNOWN));
+
+        assertThat(service.resolve(request(List.of(KNOWN), List.of()), Role.ADMIN))
+                .extracting(UserSummaryDto::getUsername).containsExactly("renamed");
+    }
+
+    @Test
+    void serviceAccountsMayOnlyLookUpIds() {
+        when(userRepository.findSummariesByIdIn(anyCollection())).thenReturn(List.of(
+                new UserSummaryDto(KNOWN, "user@example.com", "user", "Test", "User")));
+
+        assertThat(service.resolve(request(List.of(KNOWN), List.of()), Role.SERVICE))
+                .extracting(UserSummaryDto::getEmail).containsExactly((String) null);
+        assertThatThrownBy(() -> service.resolve(request(List.of(), List.of("user@example.com")), Role.SERVICE))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> service.resolve(request(List.of(), List.of("user@example.com")), Role.USER))
+                .isInstanceOf(AccessDeniedException.class);
+        verify(userRepository, never()).findSummariesByEmailIn(anyCollection());
+    }
+
+    @Test
+    void rejectsBatchesOverTheLimit() {
+        assertThatThrownBy(() -> service.resolve(request(
+                List.of(UUID.randomUUID(), UUID.randomUUID()), List.of("a@example.com", "b@example.com")), Role.ADMIN))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+}
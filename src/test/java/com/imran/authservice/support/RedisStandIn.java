@@ -0,0 +1,192 @@
+package com.imran.authservice.support;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in speaking enough RESP2 for the commands this service uses.
+ * Replies can be stalled to simulate a slow or hung Redis, and the reported
+ * replication role can be switched to build primary/replica topologies.
+ */
+public class RedisStandIn implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final Map<String, String> data = new ConcurrentHashMap<>();
+    private final List<Socket> clients = new CopyOnWriteArrayList<>();
+    private final AtomicInteger commandCount = new AtomicInteger();
+
+    private volatile long stallMillis;
+    private volatile String role = "master";
+    private volatile RedisStandIn primary;
+
+    public RedisStandIn() throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "redis-stand-in-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void stall(long millis) {
+        this.stallMillis = millis;
+    }
+
+    public void replicaOf(RedisStandIn primary) {
+        this.primary = primary;
+        this.role = "slave";
+    }
+
+    public void put(String key, String value) {
+        data.put(key, value);
+    }
+
+    public String get(String key) {
+        return data.get(key);
+    }
+
+    public int getCommandCount() {
+        return commandCount.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                clients.add(client);
+                Thread handler = new Thread(() -> serve(client), "redis-stand-in-client");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (client) {
+            InputStream in = new BufferedInputStream(client.getInputStream());
+            OutputStream out = client.getOutputStream();
+            List<String> command;
+            while ((command = readCommand(in)) != null) {
+                if (stallMillis > 0) {
+                    Thread.sleep(stallMillis);
+                }
+                out.write(handle(command).getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String handle(List<String> command) {
+        String name = command.get(0).toUpperCase(Locale.ROOT);
+        commandCount.incrementAndGet();
+
+        // Replicas serve the primary's data set, like a fully caught up replica would
+        Map<String, String> store = primary != null ? primary.data : data;
+
+        if (primary != null && (name.equals("SET") || name.equals("DEL"))) {
+            return "-READONLY You can't write against a read only replica.\r\n";
+        }
+
+        return switch (name) {
+            case "PING" -> "+PONG\r\n";
+            case "HELLO" -> "-ERR unknown command 'HELLO'\r\n";
+            case "GET" -> bulk(store.get(command.get(1)));
+            case "MGET" -> {
+                StringBuilder reply = new StringBuilder("*").append(command.size() - 1).append("\r\n");
+                command.subList(1, command.size()).forEach(key -> reply.append(bulk(store.get(key))));
+                yield reply.toString();
+            }
+            case "SET" -> {
+                store.put(command.get(1), command.get(2));
+                yield "+OK\r\n";
+            }
+            case "EXISTS" -> ":" + command.subList(1, command.size()).stream().filter(store::containsKey).count() + "\r\n";
+            case "DEL" -> ":" + command.subList(1, command.size()).stream().filter(key -> store.remove(key) != null).count() + "\r\n";
+            case "PUBLISH" -> ":0\r\n";
+            case "ROLE" -> "slave".equals(role)
+                    ? "*5\r\n" + bulk("slave") + bulk(primary.getHost()) + ":" + primary.getPort() + "\r\n"
+                        + bulk("connected") + ":0\r\n"
+                    : "*3\r\n" + bulk("master") + ":0\r\n*0\r\n";
+            case "INFO" -> bulk("# Replication\r\nrole:" + role + "\r\n");
+            default -> "+OK\r\n";
+        };
+    }
+
+    private static String bulk(String value) {
+        if (value == null) {
+            return "$-1\r\n";
+        }
+        return "$" + value.getBytes(StandardCharsets.UTF_8).length + "\r\n" + value + "\r\n";
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            return null;
+        }
+        if (type != '*') {
+            throw new IOException("Only RESP arrays are supported");
+        }
+
+        int count = Integer.parseInt(readLine(in));
+        List<String> command = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("Expected bulk string");
+            }
+            int length = Integer.parseInt(readLine(in));
+            byte[] value = in.readNBytes(length);
+            in.readNBytes(2);
+            command.add(new String(value, StandardCharsets.UTF_8));
+        }
+        return command;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1) {
+                throw new IOException("Connection closed");
+            }
+            line.write(b);
+        }
+        in.read();
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+}
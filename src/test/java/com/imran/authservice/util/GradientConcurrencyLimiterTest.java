@@ -0,0 +1,69 @@
+package com.imran.authservice.util;
+
+import com.imran.authservice.enums.RequestPriority;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GradientConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    void growsWhileLatencyIsStableAndShrinksWhenItRises() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(20, 5, 200, 1.5);
+
+        for (int i = 0; i < 100; i++) {
+            sample(limiter, FAST);
+        }
+        int grown = limiter.getLimit();
+        assertThat(grown).isGreaterThan(20);
+
+        for (int i = 0; i < 50; i++) {
+            sample(limiter, SLOW);
+        }
+        assertThat(limiter.getLimit()).isLessThan(grown / 2).isGreaterThanOrEqualTo(5);
+    }
+
+    @Test
+    void failuresBackOffTheLimit() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(100, 5, 200, 1.5);
+
+        assertThat(limiter.tryAcquire(1.0)).isTrue();
+        limiter.release(FAST, 1, true);
+
+        assertThat(limiter.getLimit()).isEqualTo(90);
+    }
+
+    @Test
+    void lowerPrioritiesAreShedFirst() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(20, 5, 200, 1.5);
+
+        // BACKGROUND may hold 60% of the limit
+        for (int i = 0; i < 12; i++) {
+            assertThat(limiter.tryAcquire(RequestPriority.BACKGROUND.getLimitShare())).isTrue();
+        }
+        assertThat(limiter.tryAcquire(RequestPriority.BACKGROUND.getLimitShare())).isFalse();
+
+        // LOGIN up to 85%, CRITICAL the whole limit
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(RequestPriority.LOGIN.getLimitShare())).isTrue();
+        }
+        assertThat(limiter.tryAcquire(RequestPriority.LOGIN.getLimitShare())).isFalse();
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(RequestPriority.CRITICAL.getLimitShare())).isTrue();
+        }
+        assertThat(limiter.tryAcquire(RequestPriority.CRITICAL.getLimitShare())).isFalse();
+        assertThat(limiter.getInFlight()).isEqualTo(20);
+    }
+
+    // A request that used the whole limit, so the sample counts
+    private static void sample(GradientConcurrencyLimiter limiter, long rttNanos) {
+        limiter.tryAcquire(1.0);
+        limiter.release(rttNanos, limiter.getLimit(), false);
+    }
+
+}